@@ -0,0 +1,62 @@
+package be.esi.prj.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calcul du montant d'un séjour : {@link ParkingFeeCalculator#calculateFee} (dates, tarif par défaut)
+ * et {@link Tariff#feeCents(long, long, long)} (minutes depuis l'époque, sans allocation), sur des séjours
+ * de quelques minutes à trois jours, un sur quatre en retard.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeeBenchmark {
+
+    private static final int STAYS = 1_024;
+
+    private final LocalDateTime[] entry = new LocalDateTime[STAYS];
+    private final LocalDateTime[] exit = new LocalDateTime[STAYS];
+    private final LocalDateTime[] departure = new LocalDateTime[STAYS];
+    private Stays stays;
+    private Tariff tariff;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        Stays.Builder builder = new Stays.Builder(STAYS);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 3, 0, 0);
+        for (int i = 0; i < STAYS; i++) {
+            entry[i] = start.plusMinutes(random.nextInt(7 * 1_440));
+            exit[i] = entry[i].plusMinutes(1 + random.nextInt(3 * 1_440));
+            departure[i] = i % 4 == 0 ? exit[i].plusMinutes(random.nextInt(1_440)) : exit[i];
+            builder.add(Stays.epochMinute(entry[i]), Stays.epochMinute(exit[i]), Stays.epochMinute(departure[i]));
+        }
+        stays = builder.build();
+        tariff = TariffEngine.getInstance().defaultTariff();
+    }
+
+    @TearDown
+    public void tearDown() {
+        TariffEngine.shutdown();
+    }
+
+    @Benchmark
+    public double calculateFee() {
+        next = (next + 1) & (STAYS - 1);
+        return ParkingFeeCalculator.calculateFee(entry[next], exit[next], departure[next]);
+    }
+
+    @Benchmark
+    public long feeCents() {
+        next = (next + 1) & (STAYS - 1);
+        return tariff.feeCents(stays.entry()[next], stays.exit()[next], stays.departure()[next]);
+    }
+}
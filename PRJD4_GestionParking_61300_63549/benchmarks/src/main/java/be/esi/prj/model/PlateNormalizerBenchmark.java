@@ -0,0 +1,40 @@
+package be.esi.prj.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nettoyage du texte rendu par l'OCR ({@link PlateNormalizer#normalize}) et clé de comparaison
+ * tolérante aux confusions ({@link PlateNormalizer#canonical}), sur des lectures typiques :
+ * propre, minuscules et espaces, bruit autour de la plaque, caractères confondus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlateNormalizerBenchmark {
+
+    private static final String[] READINGS = {
+            "1-ABC-123",
+            " 1 abc 123\n",
+            "|1-A8C-l23.\n",
+            "2.XYZ.O45",
+    };
+
+    private int next;
+
+    @Benchmark
+    public String normalize() {
+        next = (next + 1) & 3;
+        return PlateNormalizer.normalize(READINGS[next]);
+    }
+
+    @Benchmark
+    public String canonical() {
+        next = (next + 1) & 3;
+        return PlateNormalizer.canonical(READINGS[next]);
+    }
+}
@@ -0,0 +1,72 @@
+package be.esi.prj.model.repository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Base SQLite temporaire sur disque, au schéma de l'application, remplie de véhicules présents
+ * aux plaques distinctes et déterministes ({@link #plate(int)}).
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final LocalDateTime FIRST_ENTRY = LocalDateTime.of(2025, 3, 3, 7, 0);
+
+    private final Path file;
+    private final ConnectionPool pool;
+
+    BenchmarkDatabase(int vehicles) throws Exception {
+        file = Files.createTempFile("parkingBenchmark", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + file, null, null,
+                new ConnectionPool.Config(4, 5_000, 60_000, 2, 16));
+        try (Connection connection = pool.borrow()) {
+            SchemaInitializer.migrate(connection);
+            insert(connection, vehicles);
+        }
+    }
+
+    /**
+     * Plaque du véhicule {@code i} : {@code 1-ABC-123}, distincte jusqu'à 17 millions de véhicules.
+     * Aucune plaque générée ne commence par 9 : {@code 99-ABC-123} est à deux éditions de toutes.
+     */
+    static String plate(int i) {
+        int number = i % 1_000;
+        int letters = i / 1_000;
+        return "1-" + (char) ('A' + letters / 676 % 26) + (char) ('A' + letters / 26 % 26)
+                + (char) ('A' + letters % 26) + '-' + String.format("%03d", number);
+    }
+
+    private static void insert(Connection connection, int vehicles) throws SQLException {
+        String sql = "INSERT INTO Vehicle (plateNumber, entryTime, exitTime) VALUES (?, ?, ?)";
+        connection.setAutoCommit(false);
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < vehicles; i++) {
+                LocalDateTime entry = FIRST_ENTRY.plusSeconds(i % 86_400);
+                stmt.setString(1, plate(i));
+                stmt.setLong(2, VehicleDao.toEpoch(entry));
+                stmt.setLong(3, VehicleDao.toEpoch(entry.plusHours(1 + i % 12)));
+                stmt.addBatch();
+                if (i % 10_000 == 9_999) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    ConnectionPool pool() {
+        return pool;
+    }
+
+    @Override
+    public void close() throws Exception {
+        pool.close();
+        Files.deleteIfExists(file);
+    }
+}
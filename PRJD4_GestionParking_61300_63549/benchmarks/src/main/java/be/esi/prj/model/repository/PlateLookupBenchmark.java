@@ -0,0 +1,74 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.ParkingTicket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche d'un ticket par plaque ({@link VehicleRepository#findTicketByPlate}) sur un cache chargé
+ * de 1 000 à 1 000 000 de véhicules présents : plaque exacte, lecture OCR à nettoyer (casse, séparateurs)
+ * et plaque inconnue, qui parcourt l'index approximatif sans rien trouver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class PlateLookupBenchmark {
+
+    /** Plaques différentes interrogées à tour de rôle, pour ne pas mesurer une seule ligne de cache. */
+    private static final int PROBES = 1_024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int vehicles;
+
+    private BenchmarkDatabase database;
+    private VehicleRepository repository;
+    private final String[] exact = new String[PROBES];
+    private final String[] ocrVariant = new String[PROBES];
+    private final String[] unknown = new String[PROBES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        database = new BenchmarkDatabase(vehicles);
+        repository = new VehicleRepository(new VehicleDao(database.pool()));
+        repository.ready().join();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < PROBES; i++) {
+            String plate = BenchmarkDatabase.plate(random.nextInt(vehicles));
+            exact[i] = plate;
+            ocrVariant[i] = " " + plate.toLowerCase().replace('-', ' ') + "\n";
+            unknown[i] = "99" + plate.substring(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repository.close();
+        database.close();
+    }
+
+    private int probe() {
+        return next = (next + 1) & (PROBES - 1);
+    }
+
+    @Benchmark
+    public Optional<ParkingTicket> exactPlate() {
+        return repository.findTicketByPlate(exact[probe()]);
+    }
+
+    @Benchmark
+    public Optional<ParkingTicket> ocrVariant() {
+        return repository.findTicketByPlate(ocrVariant[probe()]);
+    }
+
+    @Benchmark
+    public Optional<ParkingTicket> unknownPlate() {
+        return repository.findTicketByPlate(unknown[probe()]);
+    }
+}
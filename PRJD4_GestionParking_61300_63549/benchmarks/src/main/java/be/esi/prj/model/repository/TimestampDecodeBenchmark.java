@@ -0,0 +1,49 @@
+package be.esi.prj.model.repository;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décodage d'une date lue en base : ancien format texte {@code yyyy-MM-dd HH:mm:ss} analysé par un
+ * {@link DateTimeFormatter}, contre les secondes depuis l'époque décodées par {@link VehicleDao#fromEpoch}.
+ * C'est le coût par colonne que le passage aux dates entières a retiré du préchargement du cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampDecodeBenchmark {
+
+    private static final DateTimeFormatter TEXT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int VALUES = 1_024;
+
+    private final String[] texts = new String[VALUES];
+    private final long[] seconds = new long[VALUES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < VALUES; i++) {
+            LocalDateTime time = BenchmarkDatabase.FIRST_ENTRY.plusSeconds(i * 7_919L);
+            texts[i] = time.format(TEXT_FORMAT);
+            seconds[i] = VehicleDao.toEpoch(time);
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime parseText() {
+        next = (next + 1) & (VALUES - 1);
+        return LocalDateTime.parse(texts[next], TEXT_FORMAT);
+    }
+
+    @Benchmark
+    public LocalDateTime decodeEpoch() {
+        next = (next + 1) & (VALUES - 1);
+        return VehicleDao.fromEpoch(seconds[next]);
+    }
+}
@@ -0,0 +1,60 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requêtes du {@link VehicleDao} sur une base SQLite temporaire sur disque : lecture complète,
+ * recherche par plaque (index) et enregistrement d'un véhicule existant (upsert, une transaction).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleDaoBenchmark {
+
+    @Param({"1000", "10000"})
+    public int vehicles;
+
+    private BenchmarkDatabase database;
+    private VehicleDao dao;
+    private VehicleDto saved;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        database = new BenchmarkDatabase(vehicles);
+        dao = new VehicleDao(database.pool());
+        saved = dao.findByPlate(BenchmarkDatabase.plate(vehicles / 2)).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<VehicleDto> findAll() {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public Optional<VehicleDto> findByPlate() {
+        next = (next + 7_919) % vehicles;
+        return dao.findByPlate(BenchmarkDatabase.plate(next));
+    }
+
+    /** Réécrit la même ligne en alternant la sortie prévue : la table garde sa taille. */
+    @Benchmark
+    public VehicleDto save() {
+        next++;
+        return dao.save(new VehicleDto(saved.id(), saved.plateNumber(), saved.entryTime(),
+                saved.exitTime().plusMinutes(next & 1)));
+    }
+}
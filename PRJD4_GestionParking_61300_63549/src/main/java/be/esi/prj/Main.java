@@ -1,5 +1,13 @@
 package be.esi.prj;
 
+import be.esi.prj.model.ExecutionService;
+import be.esi.prj.model.MetricsExporter;
+import be.esi.prj.model.OcrEngine;
+import be.esi.prj.model.PhotoIngestionService;
+import be.esi.prj.model.PlateScanner;
+import be.esi.prj.model.TariffEngine;
+import be.esi.prj.model.repository.RepositoryException;
+import be.esi.prj.model.repository.VehicleRepository;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -11,8 +19,17 @@ import java.io.IOException;
 import java.net.URL;
 
 public class Main extends Application {
+    private PhotoIngestionService ingestion;
+
     @Override
     public void start(Stage stage) throws IOException {
+        // lance le chargement du cache pendant la construction de l'interface
+        VehicleRepository repository = VehicleRepository.getInstance();
+        MetricsExporter.start();
+        PhotoIngestionService.Config ingestionConfig = PhotoIngestionService.loadConfig();
+        if (ingestionConfig != null) {
+            ingestion = new PhotoIngestionService(ingestionConfig, new PlateScanner(), repository);
+        }
         URL resource = Main.class.getResource("/fxml/MainView.fxml");
         FXMLLoader fxmlLoader = new FXMLLoader(resource);
         Parent root = fxmlLoader.load();
@@ -27,6 +44,22 @@ public class Main extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        if (ingestion != null) {
+            ingestion.close();
+        }
+        OcrEngine.shutdown();
+        TariffEngine.shutdown();
+        try {
+            VehicleRepository.shutdown();
+        } catch (RepositoryException e) {
+            System.err.println("Fermeture de la base incomplète : " + e.getMessage());
+        }
+        MetricsExporter.shutdown();
+        ExecutionService.shutdown();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -0,0 +1,179 @@
+package be.esi.prj.model;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Tarification en masse : clôture de journée, repricing d'un mois, simulation d'un nouveau tarif
+ * sur un trafic passé.
+ * <p>
+ * Les séjours sont découpés en tranches évaluées en parallèle sur le pool {@code fork-join} de
+ * {@link ExecutionService} (mesuré et arrêté avec les autres pools) ; chaque tranche écrit
+ * ses montants dans le tableau résultat (cases disjointes) et rend ses totaux, fusionnés en remontant.
+ * Aucun objet n'est créé par séjour. Contrairement aux méthodes asynchrones de {@link ParkingFeeCalculator},
+ * rien ne passe par le thread JavaFX : l'appelant reçoit directement le résultat ou un {@link CompletableFuture}.
+ */
+public final class BulkFeeEvaluator {
+
+    /** Séjours par tranche : assez pour amortir la découpe, assez peu pour répartir la charge. */
+    private static final int THRESHOLD = 16_384;
+
+    private BulkFeeEvaluator() {
+    }
+
+    /**
+     * Montants et totaux d'une tarification.
+     *
+     * @param feesCents  montant de chaque séjour, dans l'ordre des séjours
+     * @param totalCents somme des montants
+     * @param minCents   plus petit montant (0 sans séjour)
+     * @param maxCents   plus grand montant (0 sans séjour)
+     * @param freeStays  séjours gratuits (franchise)
+     * @param totalMinutes durée cumulée des séjours, jusqu'à la sortie prévue
+     */
+    public record Result(long[] feesCents, long totalCents, long minCents, long maxCents, long freeStays,
+                         long totalMinutes) {
+        public int count() {
+            return feesCents.length;
+        }
+
+        public double meanCents() {
+            return feesCents.length == 0 ? 0 : (double) totalCents / feesCents.length;
+        }
+    }
+
+    /**
+     * Comparaison de deux tarifs sur les mêmes séjours.
+     *
+     * @param current  tarif en vigueur
+     * @param proposed tarif simulé
+     */
+    public record Comparison(Result current, Result proposed) {
+        public long deltaCents() {
+            return proposed.totalCents() - current.totalCents();
+        }
+
+        /** Séjours qui paieraient plus avec le tarif simulé. */
+        public int increased() {
+            int count = 0;
+            for (int i = 0; i < current.count(); i++) {
+                if (proposed.feesCents()[i] > current.feesCents()[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /** Totaux partiels d'une tranche. */
+    private record Totals(long total, long min, long max, long free, long minutes) {
+        Totals merge(Totals other) {
+            return new Totals(total + other.total, Math.min(min, other.min), Math.max(max, other.max),
+                    free + other.free, minutes + other.minutes);
+        }
+    }
+
+    private static final class Slice extends RecursiveTask<Totals> {
+        private final Tariff tariff;
+        private final Stays stays;
+        private final long[] fees;
+        private final int from;
+        private final int to;
+
+        Slice(Tariff tariff, Stays stays, long[] fees, int from, int to) {
+            this.tariff = tariff;
+            this.stays = stays;
+            this.fees = fees;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Slice left = new Slice(tariff, stays, fees, from, middle);
+                left.fork();
+                Totals right = new Slice(tariff, stays, fees, middle, to).compute();
+                return left.join().merge(right);
+            }
+            long[] entry = stays.entry();
+            long[] exit = stays.exit();
+            long[] departure = stays.departure();
+            long total = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long free = 0;
+            long minutes = 0;
+            for (int i = from; i < to; i++) {
+                long fee = tariff.feeCents(entry[i], exit[i], departure[i]);
+                fees[i] = fee;
+                total += fee;
+                min = Math.min(min, fee);
+                max = Math.max(max, fee);
+                if (fee == 0) {
+                    free++;
+                }
+                minutes += exit[i] - entry[i];
+            }
+            return new Totals(total, min, max, free, minutes);
+        }
+    }
+
+    /**
+     * Tarifie des séjours sur le pool fork/join de {@link ExecutionService}.
+     *
+     * @param tariff tarif à appliquer
+     * @param stays  séjours
+     * @return montants et totaux
+     * @throws IllegalArgumentException si un séjour se termine avant d'avoir commencé
+     */
+    public static Result evaluate(Tariff tariff, Stays stays) {
+        return evaluate(tariff, stays, ExecutionService.getInstance().forkJoin()::invoke);
+    }
+
+    /**
+     * Comme {@link #evaluate(Tariff, Stays)}, sur un pool donné (par exemple pour limiter le parallélisme).
+     */
+    public static Result evaluate(Tariff tariff, Stays stays, ForkJoinPool pool) {
+        return evaluate(tariff, stays, pool::invoke);
+    }
+
+    /**
+     * @param invoker exécute la tranche racine et rend ses totaux
+     */
+    private static Result evaluate(Tariff tariff, Stays stays, Function<Slice, Totals> invoker) {
+        Objects.requireNonNull(tariff, "Tarif requis");
+        Objects.requireNonNull(stays, "Séjours requis");
+        long[] fees = new long[stays.size()];
+        if (fees.length == 0) {
+            return new Result(fees, 0, 0, 0, 0, 0);
+        }
+        Totals totals = invoker.apply(new Slice(tariff, stays, fees, 0, fees.length));
+        return new Result(fees, totals.total(), totals.min(), totals.max(), totals.free(), totals.minutes());
+    }
+
+    /**
+     * Tarifie des séjours en arrière-plan sur le pool fork/join de {@link ExecutionService},
+     * sans bloquer l'appelant.
+     */
+    public static CompletableFuture<Result> evaluateAsync(Tariff tariff, Stays stays) {
+        // déjà sur un thread du pool : la tranche racine y est découpée directement
+        return ExecutionService.getInstance().forkJoin().supplyAsync(() -> evaluate(tariff, stays, Slice::invoke));
+    }
+
+    /**
+     * Simule un tarif sur des séjours déjà tarifés avec le tarif en vigueur.
+     *
+     * @param current  tarif en vigueur
+     * @param proposed tarif simulé
+     * @param stays    séjours de référence
+     * @return les deux tarifications, séjour par séjour
+     */
+    public static Comparison compare(Tariff current, Tariff proposed, Stays stays) {
+        return new Comparison(evaluate(current, stays), evaluate(proposed, stays));
+    }
+}
@@ -0,0 +1,427 @@
+package be.esi.prj.model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Exécution des tâches de fond de l'application, par pools nommés.
+ * <ul>
+ *     <li>{@code io} : un thread virtuel par tâche, pour les lectures et écritures JDBC qui bloquent ;</li>
+ *     <li>{@code compute} : threads de plateforme en nombre borné (cœurs), pour les calculs ;</li>
+ *     <li>{@code fork-join} : pool fork/join (cœurs), pour les calculs découpés en tranches
+ *     ({@link Pool#invoke}) ;</li>
+ *     <li>pools dédiés ({@link #platformPool}), comme celui de l'OCR ;</li>
+ *     <li>pools planifiés ({@link #scheduledPool}), pour les tâches différées ou périodiques
+ *     (relecture des tarifs, export des métriques).</li>
+ * </ul>
+ * Les boucles bloquantes de longue durée (surveillance d'un dossier, file d'écriture) tournent sur {@code io}.
+ * Tous les threads sont des démons : un pool oublié ne retient pas la JVM. {@link #shutdown()} est appelé
+ * par {@code Main.stop()} : les pools refusent les nouvelles tâches, terminent celles en cours dans le délai
+ * imparti puis sont interrompus. Chaque pool mesure sa file d'attente, l'attente et la durée des tâches.
+ */
+public final class ExecutionService {
+
+    private static ExecutionService instance;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Instantané des métriques d'un pool.
+     *
+     * @param name        nom du pool
+     * @param virtual     pool de threads virtuels
+     * @param active      tâches en cours
+     * @param queued      tâches soumises pas encore démarrées
+     * @param completed   tâches terminées (réussies ou non)
+     * @param failed      tâches terminées par une exception, y compris celles de {@link Pool#submit}
+     *                    et de {@link Pool#supplyAsync}, dont l'exception est gardée dans le résultat
+     * @param rejected    tâches refusées (file pleine ou pool arrêté)
+     * @param meanWaitMillis attente moyenne entre la soumission et le démarrage
+     * @param meanRunMillis  durée moyenne d'exécution
+     */
+    public record PoolStats(String name, boolean virtual, int active, int queued, long completed, long failed,
+                            long rejected, double meanWaitMillis, double meanRunMillis) {
+    }
+
+    /**
+     * Pool mesuré : enveloppe chaque tâche pour compter l'attente, la durée et les échecs.
+     * <p>
+     * Une tâche de {@link CompletableFuture} garde son exception dans le résultat sans la laisser
+     * remonter : pour qu'elle soit comptée, passer par {@link #supplyAsync} ou {@link #runAsync}
+     * plutôt que {@code CompletableFuture.supplyAsync(…, pool)}.
+     */
+    public static final class Pool extends AbstractExecutorService {
+        private final String name;
+        private final boolean virtual;
+        private final ExecutorService delegate;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+
+        private Pool(String name, boolean virtual, ExecutorService delegate) {
+            this.name = name;
+            this.virtual = virtual;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            long submitted = System.nanoTime();
+            queued.incrementAndGet();
+            try {
+                delegate.execute(() -> {
+                    queued.decrementAndGet();
+                    waitNanos.add(System.nanoTime() - submitted);
+                    run(task);
+                });
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                rejected.increment();
+                throw e;
+            }
+        }
+
+        /** Tâche de {@link #submit} : son exception est gardée dans le résultat, l'échec est compté ici. */
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new FutureTask<>(callable) {
+                @Override
+                protected void setException(Throwable t) {
+                    failed.increment();
+                    super.setException(t);
+                }
+            };
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable task, T value) {
+            return newTaskFor(Executors.callable(task, value));
+        }
+
+        /**
+         * Comme {@code CompletableFuture.supplyAsync(supplier, pool)}, en comptant l'échec éventuel.
+         */
+        public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return supplier.get();
+                } catch (RuntimeException | Error e) {
+                    failed.increment();
+                    throw e;
+                }
+            }, this);
+        }
+
+        /**
+         * Comme {@code CompletableFuture.runAsync(task, pool)}, en comptant l'échec éventuel.
+         */
+        public CompletableFuture<Void> runAsync(Runnable task) {
+            return supplyAsync(() -> {
+                task.run();
+                return null;
+            });
+        }
+
+        /**
+         * Exécute une tâche après un délai ; seule la durée d'exécution est mesurée, pas le délai.
+         *
+         * @throws UnsupportedOperationException si le pool n'a pas été créé par {@link #scheduledPool}
+         */
+        public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+            try {
+                return scheduler().schedule(() -> run(task), delay, unit);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw e;
+            }
+        }
+
+        /**
+         * Exécute une tâche périodiquement, {@code delay} après la fin de chaque exécution.
+         * Une exécution qui lève une exception arrête les suivantes.
+         *
+         * @throws UnsupportedOperationException si le pool n'a pas été créé par {@link #scheduledPool}
+         */
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+            try {
+                return scheduler().scheduleWithFixedDelay(() -> run(task), initialDelay, delay, unit);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw e;
+            }
+        }
+
+        /**
+         * Exécute une tâche fork/join et attend son résultat ; la tâche compte comme une seule exécution.
+         *
+         * @throws UnsupportedOperationException si le pool n'a pas été créé par {@link #forkJoin()}
+         */
+        public <T> T invoke(ForkJoinTask<T> task) {
+            if (!(delegate instanceof ForkJoinPool forkJoin)) {
+                throw new UnsupportedOperationException("Pool " + name + " non fork/join");
+            }
+            run(() -> forkJoin.invoke(task));
+            return task.join();
+        }
+
+        private ScheduledExecutorService scheduler() {
+            if (delegate instanceof ScheduledExecutorService scheduler) {
+                return scheduler;
+            }
+            throw new UnsupportedOperationException("Pool " + name + " non planifié");
+        }
+
+        private void run(Runnable task) {
+            long start = System.nanoTime();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                active.decrementAndGet();
+                runNanos.add(System.nanoTime() - start);
+                completed.increment();
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int active() {
+            return active.get();
+        }
+
+        public int queued() {
+            return queued.get();
+        }
+
+        public PoolStats stats() {
+            long done = completed.sum();
+            long started = done + active.get();
+            return new PoolStats(name, virtual, active.get(), queued.get(), done, failed.sum(), rejected.sum(),
+                    started == 0 ? 0 : waitNanos.sum() / 1e6 / started,
+                    done == 0 ? 0 : runNanos.sum() / 1e6 / done);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    /** Pools par nom, dans l'ordre de création. Accès sous le verrou de l'instance. */
+    private final Map<String, Pool> pools = new LinkedHashMap<>();
+
+    private ExecutionService() {
+    }
+
+    /**
+     * Retourne le service partagé, créé au premier appel.
+     *
+     * @return instance unique
+     */
+    public static synchronized ExecutionService getInstance() {
+        if (instance == null) {
+            instance = new ExecutionService();
+        }
+        return instance;
+    }
+
+    /**
+     * Arrête tous les pools du service partagé s'il a été créé.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close(SHUTDOWN_TIMEOUT);
+            instance = null;
+        }
+    }
+
+    /**
+     * @return pool de threads virtuels pour le travail bloquant (JDBC, fichiers)
+     */
+    public synchronized Pool io() {
+        return pools.computeIfAbsent("io", name -> measured(new Pool(name, true,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("io-", 0).factory()))));
+    }
+
+    /**
+     * @return pool borné de threads de plateforme pour les calculs (un par cœur)
+     */
+    public synchronized Pool compute() {
+        Pool pool = pools.get("compute");
+        if (pool == null) {
+            pool = platformPool("compute", Runtime.getRuntime().availableProcessors(), 1_024, true);
+        }
+        return pool;
+    }
+
+    /**
+     * @return pool fork/join pour les calculs découpés en tranches (un thread par cœur)
+     */
+    public synchronized Pool forkJoin() {
+        Pool pool = pools.get("fork-join");
+        if (pool == null || pool.isShutdown()) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ForkJoinPool executor = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), forkJoin -> {
+                // les threads fork/join par défaut sont des démons
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoin);
+                thread.setName("fork-join-" + threadCount.incrementAndGet());
+                return thread;
+            }, null, false);
+            pool = measured(new Pool("fork-join", false, executor));
+            pools.put("fork-join", pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Crée un pool dédié de threads de plateforme, ou rend celui qui porte déjà ce nom s'il est actif.
+     *
+     * @param name          nom du pool, préfixe des threads
+     * @param threads       nombre de threads
+     * @param queueCapacity tâches en attente au maximum
+     * @param callerRuns    file pleine : {@code true} pour exécuter la tâche dans l'appelant,
+     *                      {@code false} pour la refuser
+     * @return pool enregistré
+     */
+    public synchronized Pool platformPool(String name, int threads, int queueCapacity, boolean callerRuns) {
+        Pool existing = pools.get(name);
+        if (existing != null && !existing.isShutdown()) {
+            return existing;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                callerRuns ? ExecutionService::runInCaller : new ThreadPoolExecutor.AbortPolicy()
+        );
+        Pool pool = measured(new Pool(name, false, executor));
+        pools.put(name, pool);
+        return pool;
+    }
+
+    /**
+     * Crée un pool planifié de threads de plateforme, ou rend celui qui porte déjà ce nom s'il est actif.
+     * À l'arrêt, les tâches différées pas encore démarrées sont abandonnées.
+     *
+     * @param name    nom du pool, préfixe des threads
+     * @param threads nombre de threads
+     * @return pool enregistré, utilisable avec {@link Pool#schedule} et {@link Pool#scheduleWithFixedDelay}
+     */
+    public synchronized Pool scheduledPool(String name, int threads) {
+        Pool existing = pools.get(name);
+        if (existing != null && !existing.isShutdown()) {
+            return existing;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, task -> {
+            Thread thread = new Thread(task, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.setRemoveOnCancelPolicy(true);
+        Pool pool = measured(new Pool(name, false, executor));
+        pools.put(name, pool);
+        return pool;
+    }
+
+    /** Expose la file et les tâches en cours du pool comme jauges ({@link Metrics}), retirées par {@link #close}. */
+    private static Pool measured(Pool pool) {
+        Metrics.gauge("pool_queued_tasks", pool::queued, "pool", pool.name());
+        Metrics.gauge("pool_active_tasks", pool::active, "pool", pool.name());
+        return pool;
+    }
+
+    /** Comme {@link ThreadPoolExecutor.CallerRunsPolicy}, mais une tâche soumise après l'arrêt est refusée et non ignorée. */
+    private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Pool arrêté");
+        }
+        task.run();
+    }
+
+    public synchronized List<PoolStats> stats() {
+        List<PoolStats> stats = new ArrayList<>(pools.size());
+        pools.values().forEach(pool -> stats.add(pool.stats()));
+        return stats;
+    }
+
+    /**
+     * Refuse les nouvelles tâches partout, puis attend la fin de chaque pool dans le délai global
+     * avant d'interrompre les tâches restantes.
+     */
+    private synchronized void close(Duration timeout) {
+        pools.values().forEach(Pool::shutdown);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Pool pool : pools.values()) {
+            try {
+                if (!pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    System.err.println("Pool " + pool.name() + " interrompu : " + pool.shutdownNow().size()
+                            + " tâche(s) abandonnée(s)");
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            Metrics.removeGauge("pool_queued_tasks", "pool", pool.name());
+            Metrics.removeGauge("pool_active_tasks", "pool", pool.name());
+        }
+        pools.clear();
+    }
+}
@@ -0,0 +1,268 @@
+package be.esi.prj.model;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registre des métriques de l'application : compteurs, histogrammes de latence et jauges.
+ * <p>
+ * L'enregistrement ne prend aucun verrou et n'alloue rien : un compteur est un {@link LongAdder},
+ * un histogramme un tableau de cases atomiques. Les métriques sont créées une fois (de préférence dans
+ * un champ statique) puis réutilisées. Une série est identifiée par son nom et ses étiquettes,
+ * au format Prometheus : {@code db_statement_seconds{statement="findById"}}.
+ * <p>
+ * {@link #prometheus()} rend l'ensemble au format texte de Prometheus ; {@link MetricsExporter}
+ * l'écrit périodiquement dans un fichier ou le sert en local.
+ */
+public final class Metrics {
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param name   nom de la série (suffixe {@code _total} conseillé)
+     * @param labels paires nom, valeur
+     * @return compteur partagé pour cette série
+     */
+    public static Counter counter(String name, String... labels) {
+        return COUNTERS.computeIfAbsent(series(name, labels), key -> new Counter());
+    }
+
+    /**
+     * @param name   nom de la série (suffixe {@code _seconds} conseillé)
+     * @param labels paires nom, valeur
+     * @return histogramme partagé pour cette série
+     */
+    public static Histogram histogram(String name, String... labels) {
+        return HISTOGRAMS.computeIfAbsent(series(name, labels), key -> new Histogram());
+    }
+
+    /**
+     * Enregistre une valeur lue au moment de l'export ; un nouvel enregistrement remplace le précédent.
+     *
+     * @param value lecture de la valeur, rapide et sans effet de bord
+     */
+    public static void gauge(String name, DoubleSupplier value, String... labels) {
+        GAUGES.put(series(name, labels), value);
+    }
+
+    /**
+     * Retire une jauge, pour qu'elle ne retienne plus l'objet qu'elle lit (pool arrêté, instance fermée).
+     */
+    public static void removeGauge(String name, String... labels) {
+        GAUGES.remove(series(name, labels));
+    }
+
+    static String series(String name, String... labels) {
+        if (labels.length == 0) {
+            return name;
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Étiquettes attendues par paires nom, valeur");
+        }
+        StringBuilder series = new StringBuilder(name).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                series.append(',');
+            }
+            series.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return series.append('}').toString();
+    }
+
+    /**
+     * Compteur monotone.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long count() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Instantané d'un histogramme, durées en millisecondes.
+     */
+    public record Snapshot(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                           double p999Millis, double maxMillis) {
+    }
+
+    /**
+     * Histogramme de durées en nanosecondes, à la manière de HdrHistogram : cases log-linéaires,
+     * {@value #SUB_BUCKETS} cases par puissance de deux (erreur relative inférieure à 7 %),
+     * de la nanoseconde à plusieurs siècles en moins de mille cases.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 4;
+        static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) Math.max(0, value);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        /** Plus grande valeur rangée dans une case. */
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long base = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return base + (1L << shift) - 1;
+        }
+
+        /**
+         * @param nanos durée en nanosecondes
+         */
+        public void record(long nanos) {
+            buckets.incrementAndGet(index(nanos));
+            count.increment();
+            sum.add(nanos);
+            if (nanos > max.get()) {
+                max.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        /**
+         * Enregistre le temps écoulé depuis {@code startNanos}, lu par {@link System#nanoTime()}.
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long maxNanos = max.get();
+            long recorded = count.sum();
+            return new Snapshot(
+                    total,
+                    recorded == 0 ? 0 : sum.sum() / 1e6 / recorded,
+                    percentile(counts, total, 0.50, maxNanos) / 1e6,
+                    percentile(counts, total, 0.90, maxNanos) / 1e6,
+                    percentile(counts, total, 0.99, maxNanos) / 1e6,
+                    percentile(counts, total, 0.999, maxNanos) / 1e6,
+                    maxNanos / 1e6
+            );
+        }
+
+        private static long percentile(long[] counts, long total, double quantile, long maxNanos) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        long sumNanos() {
+            return sum.sum();
+        }
+    }
+
+    /**
+     * Rend toutes les séries au format texte de Prometheus ; les histogrammes sont exportés comme
+     * des résumés (quantiles, somme et nombre), en secondes.
+     *
+     * @return texte d'exposition
+     */
+    public static String prometheus() {
+        StringBuilder out = new StringBuilder(4_096);
+        String[] lastType = {""};
+        new TreeMap<>(COUNTERS).forEach((series, counter) -> {
+            type(out, lastType, series, "counter");
+            out.append(series).append(' ').append(counter.count()).append('\n');
+        });
+        new TreeMap<>(GAUGES).forEach((series, gauge) -> {
+            type(out, lastType, series, "gauge");
+            double value;
+            try {
+                value = gauge.getAsDouble();
+            } catch (RuntimeException e) {
+                value = Double.NaN;
+            }
+            out.append(series).append(' ').append(number(value)).append('\n');
+        });
+        new TreeMap<>(HISTOGRAMS).forEach((series, histogram) -> {
+            type(out, lastType, series, "summary");
+            Snapshot snapshot = histogram.snapshot();
+            String name = baseName(series);
+            String labels = series.substring(name.length());
+            quantile(out, name, labels, "0.5", snapshot.p50Millis());
+            quantile(out, name, labels, "0.9", snapshot.p90Millis());
+            quantile(out, name, labels, "0.99", snapshot.p99Millis());
+            quantile(out, name, labels, "0.999", snapshot.p999Millis());
+            out.append(name).append("_sum").append(labels).append(' ')
+                    .append(number(histogram.sumNanos() / 1e9)).append('\n');
+            out.append(name).append("_count").append(labels).append(' ').append(snapshot.count()).append('\n');
+        });
+        return out.toString();
+    }
+
+    private static void type(StringBuilder out, String[] lastType, String series, String type) {
+        String name = baseName(series);
+        if (!name.equals(lastType[0])) {
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            lastType[0] = name;
+        }
+    }
+
+    private static void quantile(StringBuilder out, String name, String labels, String quantile, double millis) {
+        String withQuantile = labels.isEmpty()
+                ? "{quantile=\"" + quantile + "\"}"
+                : labels.substring(0, labels.length() - 1) + ",quantile=\"" + quantile + "\"}";
+        out.append(name).append(withQuantile).append(' ').append(number(millis / 1e3)).append('\n');
+    }
+
+    private static String baseName(String series) {
+        int brace = series.indexOf('{');
+        return brace < 0 ? series : series.substring(0, brace);
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        return String.format(Locale.ROOT, "%.9g", value);
+    }
+}
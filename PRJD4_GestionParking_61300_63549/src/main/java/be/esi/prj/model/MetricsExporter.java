@@ -0,0 +1,143 @@
+package be.esi.prj.model;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export des {@link Metrics} : instantané écrit périodiquement dans un fichier (remplacé atomiquement)
+ * et/ou page {@code /metrics} servie sur l'interface locale au format texte de Prometheus.
+ * Configuré par metrics.properties ; sans fichier ni port, rien n'est démarré.
+ */
+public final class MetricsExporter implements AutoCloseable {
+
+    private static MetricsExporter instance;
+
+    /**
+     * @param file            fichier d'instantané, {@code null} pour ne pas en écrire
+     * @param intervalSeconds délai entre deux écritures
+     * @param httpPort        port local de /metrics, 0 pour ne pas le servir
+     */
+    public record Config(Path file, long intervalSeconds, int httpPort) {
+        public Config {
+            if (intervalSeconds < 1 || httpPort < 0 || httpPort > 65_535) {
+                throw new IllegalArgumentException("Paramètres d'export des métriques invalides");
+            }
+        }
+    }
+
+    private final Config config;
+    /** Écriture périodique de l'instantané, sur le pool planifié {@code metrics-writer} de {@link ExecutionService}. */
+    private final ScheduledFuture<?> writer;
+    private final HttpServer server;
+
+    public MetricsExporter(Config config) throws IOException {
+        this.config = config;
+        if (config.httpPort() > 0) {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.httpPort()), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            });
+            server.setExecutor(ExecutionService.getInstance().io());
+            server.start();
+            System.out.println("Métriques servies sur http://localhost:" + config.httpPort() + "/metrics");
+        } else {
+            server = null;
+        }
+        if (config.file() != null) {
+            writer = ExecutionService.getInstance().scheduledPool("metrics-writer", 1)
+                    .scheduleWithFixedDelay(this::writeSnapshot, config.intervalSeconds(), config.intervalSeconds(),
+                            TimeUnit.SECONDS);
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * Démarre l'export partagé selon metrics.properties, si un fichier ou un port est configuré.
+     */
+    public static synchronized void start() {
+        if (instance != null) {
+            return;
+        }
+        Config config = loadConfig();
+        if (config.file() == null && config.httpPort() == 0) {
+            return;
+        }
+        try {
+            instance = new MetricsExporter(config);
+        } catch (IOException e) {
+            System.err.println("Export des métriques impossible : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit un dernier instantané et arrête l'export partagé.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private static Config loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream input = MetricsExporter.class.getClassLoader().getResourceAsStream("metrics.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Configuration des métriques illisible : " + e.getMessage());
+        }
+        try {
+            String file = properties.getProperty("metrics.file", "").trim();
+            return new Config(
+                    file.isEmpty() ? null : Path.of(file),
+                    Long.parseLong(properties.getProperty("metrics.intervalSeconds", "15").trim()),
+                    Integer.parseInt(properties.getProperty("metrics.httpPort", "0").trim())
+            );
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Configuration des métriques invalide : " + e.getMessage(), e);
+        }
+    }
+
+    private void writeSnapshot() {
+        try {
+            Path target = config.file().toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), "metrics", ".tmp");
+            Files.writeString(temporary, Metrics.prometheus(), StandardCharsets.UTF_8);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Écriture des métriques impossible : " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (writer != null) {
+            writer.cancel(false);
+            writeSnapshot();
+        }
+    }
+}
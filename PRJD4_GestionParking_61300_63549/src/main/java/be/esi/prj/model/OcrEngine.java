@@ -0,0 +1,240 @@
+package be.esi.prj.model;
+
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service d'OCR partagé par toute l'application.
+ * Un nombre fixe de threads (pool {@code ocr-worker} de {@link ExecutionService}) exécute les reconnaissances ; chaque thread possède sa propre instance
+ * de {@link Tesseract}, créée à sa première tâche puis réutilisée (Tesseract n'est pas utilisable
+ * par plusieurs threads à la fois). Les demandes attendent dans une file bornée : quand elle est pleine,
+ * la demande échoue avec une {@link RejectedExecutionException}. Elle n'est jamais exécutée par l'appelant,
+ * qui peut être le thread JavaFX ou la surveillance d'un dossier et n'a pas d'instance Tesseract à lui.
+ * Les résultats sont rendus sous forme de {@link CompletableFuture}, sans dépendance à JavaFX.
+ */
+public final class OcrEngine implements AutoCloseable {
+
+    private static OcrEngine instance;
+
+    /**
+     * Paramètres du service.
+     *
+     * @param workers       nombre de threads de reconnaissance
+     * @param queueCapacity demandes en attente au maximum
+     * @param dataPath      dossier tessdata
+     * @param language      langue(s) Tesseract
+     */
+    public record Config(int workers, int queueCapacity, String dataPath, String language) {
+        public Config {
+            if (workers < 1 || queueCapacity < 1) {
+                throw new IllegalArgumentException("Paramètres d'OCR invalides");
+            }
+            if (dataPath == null || dataPath.isBlank()) {
+                throw new IllegalArgumentException("Dossier tessdata requis (ocr.dataPath ou TESSDATA_PREFIX)");
+            }
+        }
+    }
+
+    /**
+     * Instantané des métriques du service.
+     *
+     * @param workers    nombre de threads
+     * @param active     reconnaissances en cours
+     * @param queued     demandes en attente
+     * @param completed  reconnaissances terminées (réussies ou non)
+     * @param failed     reconnaissances en échec
+     * @param rejected   demandes refusées faute de place
+     * @param meanMillis durée moyenne d'une reconnaissance
+     */
+    public record Stats(int workers, int active, int queued, long completed, long failed, long rejected,
+                        double meanMillis) {
+    }
+
+    /**
+     * Travail exécuté avec l'instance Tesseract du thread courant.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(Tesseract tesseract) throws TesseractException;
+    }
+
+    private final Config config;
+    private final ExecutionService.Pool executor;
+    private final ThreadLocal<Tesseract> tesseracts;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    public OcrEngine(Config config) {
+        this.config = Objects.requireNonNull(config, "Configuration requise");
+        this.tesseracts = ThreadLocal.withInitial(this::createTesseract);
+        this.executor = ExecutionService.getInstance().platformPool(
+                "ocr-worker", config.workers(), config.queueCapacity(), false);
+    }
+
+    /**
+     * Retourne le service partagé, créé au premier appel à partir de ocr.properties.
+     *
+     * @return instance unique
+     */
+    public static synchronized OcrEngine getInstance() {
+        if (instance == null) {
+            instance = new OcrEngine(loadConfig());
+        }
+        return instance;
+    }
+
+    /**
+     * Arrête le service partagé s'il a été créé.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private static Config loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream input = OcrEngine.class.getClassLoader().getResourceAsStream("ocr.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Configuration OCR illisible : " + e.getMessage());
+        }
+        String rejection = properties.getProperty("ocr.rejection", "ABORT").trim();
+        if (!rejection.equalsIgnoreCase("ABORT")) {
+            throw new IllegalStateException("Configuration OCR invalide : ocr.rejection=" + rejection
+                    + " n'est pas permis, une file pleine refuse la demande (ABORT)");
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        try {
+            return new Config(
+                    Integer.parseInt(properties.getProperty("ocr.workers", String.valueOf(Math.max(1, cores - 1))).trim()),
+                    Integer.parseInt(properties.getProperty("ocr.queueCapacity", "32").trim()),
+                    dataPath(properties),
+                    properties.getProperty("ocr.language", "fra").trim()
+            );
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Configuration OCR invalide : " + e.getMessage(), e);
+        }
+    }
+
+    /** Dossier tessdata : ocr.dataPath s'il est renseigné, sinon la variable d'environnement TESSDATA_PREFIX. */
+    private static String dataPath(Properties properties) {
+        String configured = properties.getProperty("ocr.dataPath", "").trim();
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        String prefix = System.getenv("TESSDATA_PREFIX");
+        return prefix == null ? null : prefix.trim();
+    }
+
+    private Tesseract createTesseract() {
+        Tesseract tesseract = new Tesseract();
+        tesseract.setLanguage(config.language());
+        tesseract.setDatapath(config.dataPath());
+        return tesseract;
+    }
+
+    /**
+     * Soumet un travail d'OCR.
+     *
+     * @param task travail à exécuter avec le Tesseract du thread
+     * @return résultat du travail ; échoue avec {@link RejectedExecutionException} si la file est pleine
+     */
+    public <T> CompletableFuture<T> submit(Task<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    result.complete(task.run(tesseracts.get()));
+                } catch (Throwable e) {
+                    failed.increment();
+                    result.completeExceptionally(e);
+                } finally {
+                    busyNanos.add(System.nanoTime() - start);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Reconnaît le texte d'une image enregistrée sur disque.
+     *
+     * @param imageFile image à traiter
+     * @return texte brut reconnu
+     */
+    public CompletableFuture<String> recognize(File imageFile) {
+        return submit(tesseract -> tesseract.doOCR(imageFile));
+    }
+
+    /**
+     * Configure Tesseract pour une seule ligne de texte limitée aux caractères donnés.
+     * À appeler dans une tâche : le réglage reste propre à l'instance du thread jusqu'à {@link #resetLine}.
+     *
+     * @param tesseract instance du thread courant
+     * @param whitelist caractères autorisés
+     */
+    static void configureLine(Tesseract tesseract, String whitelist) {
+        tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_SINGLE_LINE);
+        tesseract.setVariable("tessedit_char_whitelist", whitelist);
+    }
+
+    /**
+     * Rétablit l'analyse de page complète sans restriction de caractères.
+     */
+    static void resetLine(Tesseract tesseract) {
+        tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_AUTO);
+        tesseract.setVariable("tessedit_char_whitelist", "");
+    }
+
+    public Stats stats() {
+        long done = completed.sum();
+        return new Stats(
+                config.workers(),
+                executor.active(),
+                executor.queued(),
+                done,
+                failed.sum(),
+                rejected.sum(),
+                done == 0 ? 0 : busyNanos.sum() / 1e6 / done
+        );
+    }
+
+    /**
+     * Termine les reconnaissances en cours et en attente puis arrête les threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package be.esi.prj.model;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Cache des lectures de plaques, indexé par l'empreinte SHA-256 du contenu de l'image.
+ * <p>
+ * Une image identique (même ticket rescanné, même photo redéposée) n'est pas relue par Tesseract :
+ * la lecture précédente est rendue directement. Le premier niveau est en mémoire (LRU borné) ;
+ * un second niveau optionnel sur disque conserve les lectures entre deux lancements, un fichier par image,
+ * les moins récemment utilisés étant supprimés au-delà de la limite.
+ * Les échecs d'OCR ne sont jamais mis en cache.
+ * <p>
+ * Seuls les index (mémoire et liste des fichiers) sont protégés par le verrou : les lectures, écritures
+ * et suppressions de fichiers sont faites hors du verrou, pour ne pas bloquer les autres lectures.
+ */
+public final class OcrResultCache {
+
+    private static OcrResultCache instance;
+    private static final String SUFFIX = ".plate";
+
+    /**
+     * Paramètres du cache.
+     *
+     * @param maxEntries     lectures gardées en mémoire (0 désactive le cache)
+     * @param directory      dossier du niveau disque, {@code null} pour ne garder que la mémoire
+     * @param maxDiskEntries fichiers gardés sur disque
+     */
+    public record Config(int maxEntries, Path directory, int maxDiskEntries) {
+        public Config {
+            if (maxEntries < 0 || maxDiskEntries < 0) {
+                throw new IllegalArgumentException("Paramètres du cache OCR invalides");
+            }
+        }
+
+        public static Config disabled() {
+            return new Config(0, null, 0);
+        }
+    }
+
+    /**
+     * Instantané des métriques du cache.
+     *
+     * @param entries     lectures en mémoire
+     * @param diskEntries lectures sur disque
+     * @param hits        lectures trouvées en mémoire
+     * @param diskHits    lectures trouvées sur disque
+     * @param misses      lectures absentes (OCR nécessaire)
+     * @param evictions   lectures retirées de la mémoire ou du disque faute de place
+     */
+    public record Stats(int entries, int diskEntries, long hits, long diskHits, long misses, long evictions) {
+        public double hitRate() {
+            long total = hits + diskHits + misses;
+            return total == 0 ? 0 : (double) (hits + diskHits) / total;
+        }
+    }
+
+    private final Config config;
+    private final LinkedHashMap<String, PlateReading> memory = new LinkedHashMap<>(16, 0.75f, true);
+    /** Fichiers du niveau disque, le moins récemment utilisé en premier. */
+    private final LinkedHashMap<String, Boolean> disk = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+
+    public OcrResultCache(Config config) {
+        this.config = config;
+        if (config.directory() != null && config.maxDiskEntries() > 0) {
+            indexDisk();
+        }
+    }
+
+    /**
+     * Retourne le cache partagé, créé au premier appel à partir de ocr.properties.
+     *
+     * @return instance unique
+     */
+    public static synchronized OcrResultCache getInstance() {
+        if (instance == null) {
+            instance = new OcrResultCache(loadConfig());
+            OcrResultCache shared = instance;
+            Metrics.gauge("ocr_cache_hit_ratio", () -> shared.stats().hitRate());
+        }
+        return instance;
+    }
+
+    private static Config loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream input = OcrResultCache.class.getClassLoader().getResourceAsStream("ocr.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Configuration OCR illisible : " + e.getMessage());
+        }
+        try {
+            String directory = properties.getProperty("ocr.cache.directory", "").trim();
+            return new Config(
+                    Integer.parseInt(properties.getProperty("ocr.cache.maxEntries", "512").trim()),
+                    directory.isEmpty() ? null : Path.of(directory),
+                    Integer.parseInt(properties.getProperty("ocr.cache.maxDiskEntries", "5000").trim())
+            );
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Configuration du cache OCR invalide : " + e.getMessage(), e);
+        }
+    }
+
+    /** Reprend les fichiers d'un lancement précédent, du plus ancien au plus récent. */
+    private void indexDisk() {
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.createDirectories(config.directory());
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(config.directory(), "*" + SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        } catch (IOException e) {
+            System.err.println("Cache OCR sur disque indisponible : " + e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            disk.put(name.substring(0, name.length() - SUFFIX.length()), Boolean.TRUE);
+        }
+        deleteDisk(trimDiskIndex());
+    }
+
+    public boolean isEnabled() {
+        return config.maxEntries() > 0;
+    }
+
+    /**
+     * Empreinte d'un contenu d'image, de la position à la limite du tampon (qui n'est pas déplacée).
+     *
+     * @param content octets de l'image
+     * @return empreinte hexadécimale
+     */
+    public static String key(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cherche une lecture en mémoire puis sur disque.
+     *
+     * @param key empreinte de l'image
+     * @return lecture précédente, sans durées d'étapes
+     */
+    public Optional<PlateReading> get(String key) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            PlateReading reading = memory.get(key);
+            if (reading != null) {
+                hits++;
+                return Optional.of(reading);
+            }
+            if (disk.get(key) == null) {
+                misses++;
+                return Optional.empty();
+            }
+        }
+        PlateReading reading = readDisk(key);
+        synchronized (this) {
+            if (reading == null) {
+                // fichier supprimé ou abîmé : l'image sera relue
+                disk.remove(key);
+                misses++;
+                return Optional.empty();
+            }
+            diskHits++;
+            putMemory(key, reading);
+            return Optional.of(reading);
+        }
+    }
+
+    /**
+     * Enregistre une lecture ; les durées d'étapes ne sont pas conservées.
+     *
+     * @param key     empreinte de l'image
+     * @param reading lecture obtenue par OCR
+     */
+    public void put(String key, PlateReading reading) {
+        if (!isEnabled()) {
+            return;
+        }
+        PlateReading stored = new PlateReading(reading.text(), reading.region(), Map.of());
+        synchronized (this) {
+            putMemory(key, stored);
+            if (config.directory() == null || config.maxDiskEntries() == 0 || disk.containsKey(key)) {
+                return;
+            }
+        }
+        if (writeDisk(key, stored)) {
+            List<String> evicted;
+            synchronized (this) {
+                disk.put(key, Boolean.TRUE);
+                evicted = trimDiskIndex();
+            }
+            deleteDisk(evicted);
+        }
+    }
+
+    private void putMemory(String key, PlateReading reading) {
+        memory.put(key, reading);
+        if (memory.size() > config.maxEntries()) {
+            Iterator<String> eldest = memory.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /** @return la lecture enregistrée, ou {@code null} si le fichier est absent ou illisible */
+    private PlateReading readDisk(String key) {
+        try {
+            List<String> lines = Files.readAllLines(file(key), StandardCharsets.UTF_8);
+            Rectangle region = null;
+            if (lines.size() > 1 && !lines.get(1).isBlank()) {
+                String[] parts = lines.get(1).split(",");
+                region = new Rectangle(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                        Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+            }
+            return new PlateReading(lines.isEmpty() ? "" : lines.get(0), region, Map.of());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Première ligne : texte (sans retour à la ligne) ; seconde : zone x,y,largeur,hauteur.
+     *
+     * @return {@code true} si le fichier est écrit
+     */
+    private boolean writeDisk(String key, PlateReading reading) {
+        Rectangle region = reading.region();
+        String content = reading.text().replace('\r', ' ').replace('\n', ' ') + "\n"
+                + (region == null ? "" : region.x + "," + region.y + "," + region.width + "," + region.height);
+        try {
+            Path temporary = Files.createTempFile(config.directory(), key, ".tmp");
+            Files.writeString(temporary, content, StandardCharsets.UTF_8);
+            Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Écriture du cache OCR impossible : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retire de l'index disque les fichiers au-delà de la limite ; appelé sous le verrou.
+     *
+     * @return empreintes des fichiers à supprimer
+     */
+    private List<String> trimDiskIndex() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<String> eldest = disk.keySet().iterator();
+        while (disk.size() > config.maxDiskEntries() && eldest.hasNext()) {
+            evicted.add(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+        return evicted;
+    }
+
+    private void deleteDisk(List<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                System.err.println("Suppression du cache OCR impossible : " + e.getMessage());
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return config.directory().resolve(key + SUFFIX);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(memory.size(), disk.size(), hits, diskHits, misses, evictions);
+    }
+}
@@ -4,20 +4,16 @@ import javafx.application.Platform;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 /**
  * Utilitaire pour calculer les frais de stationnement et générer un résumé associé.
  * Fournit également des méthodes asynchrones avec callbacks pour une intégration fluide avec JavaFX.
+ * Les montants viennent du tarif par défaut de {@link TariffEngine}, modifiable sans redémarrage.
+ * Les calculs asynchrones s'exécutent sur le pool {@code compute} de {@link ExecutionService}.
  */
 public class ParkingFeeCalculator {
 
-    private static final double RATE_PER_HOUR = 2.0;
-    private static final double RATE_PER_DAY = 15.0;
-    public static final double LATE_SURCHARGE_PER12H = 10;
-    private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
     private static final DateTimeFormatter SUMMARY_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
     public static long calculateDurationInMinutes(LocalDateTime entryTime, LocalDateTime exitTime) {
@@ -41,24 +37,10 @@ public class ParkingFeeCalculator {
 
     public static double calculateFee(LocalDateTime entryTime, LocalDateTime exitTime, LocalDateTime departureTime) {
         if (exitTime == null) exitTime = LocalDateTime.now();
-        long minutes = calculateDurationInMinutes(entryTime, exitTime);
-        double hours = minutes / 60.0;
-
-        double fee;
-        if (hours >= 24) {
-            fee = Math.ceil(hours / 24) * RATE_PER_DAY;
-        } else {
-            fee = Math.ceil(hours) * RATE_PER_HOUR;
-        }
-
-        if (departureTime != null && departureTime.isAfter(exitTime)) {
-            long lateHours = Duration.between(exitTime, departureTime).toHours();
-            long latePeriods = lateHours / 12;
-            if (latePeriods > 0) {
-                fee += latePeriods * LATE_SURCHARGE_PER12H;
-            }
-        }
-        return fee;
+        calculateDurationInMinutes(entryTime, exitTime);
+        LocalDateTime departure = departureTime != null ? departureTime : exitTime;
+        long cents = TariffEngine.getInstance().defaultTariff().feeCents(entryTime, exitTime, departure);
+        return cents / 100.0;
     }
     /**
      * Génère un résumé formaté du stationnement.
@@ -95,7 +77,7 @@ public class ParkingFeeCalculator {
             Consumer<Double> onResult,
             Consumer<Exception> onError
     ) {
-        executorService.submit(() -> {
+        ExecutionService.getInstance().compute().execute(() -> {
             try {
                 double fee = calculateFee(entryTime, exitTime, departureTime);
                 Platform.runLater(() -> onResult.accept(fee));
@@ -122,7 +104,7 @@ public class ParkingFeeCalculator {
             Consumer<String> onResult,
             Consumer<Exception> onError
     ) {
-        executorService.submit(() -> {
+        ExecutionService.getInstance().compute().execute(() -> {
             try {
                 String summary = getExitSummary(entryTime, exitTime, departureTime);
                 Platform.runLater(() -> onResult.accept(summary));
@@ -0,0 +1,456 @@
+package be.esi.prj.model;
+
+import be.esi.prj.model.repository.VehicleChangeEvent;
+import be.esi.prj.model.repository.VehiclePassage;
+import be.esi.prj.model.repository.VehicleRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingestion sans interface des photos déposées par les caméras dans deux dossiers surveillés,
+ * un par voie : entrée et sortie.
+ * <p>
+ * Chaque nouvelle image est lue une fois, attendue jusqu'à la fin de son écriture, puis écartée
+ * si son contenu a déjà été traité (empreinte SHA-256). Les plaques sont lues en parallèle par
+ * le service OCR ; une plaque relue peu après son dernier passage est ignorée (rafale de la même caméra).
+ * Les passages reconnus sont regroupés par lots et enregistrés par {@link VehicleRepository#registerPassages}
+ * avec la voie du dossier : une photo de la voie d'entrée n'archive jamais un séjour, même d'un véhicule
+ * déjà présent.
+ */
+public class PhotoIngestionService implements AutoCloseable {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "bmp");
+    /** Longueur minimale d'une plaque reconnue ; en dessous la lecture est considérée comme ratée. */
+    private static final int MIN_PLATE_LENGTH = 4;
+
+    /**
+     * Paramètres de l'ingestion.
+     *
+     * @param entryDirectory      dossier de la caméra d'entrée
+     * @param exitDirectory       dossier de la caméra de sortie
+     * @param batchSize           passages enregistrés au plus par transaction
+     * @param lingerMillis        attente maximale pour compléter un lot
+     * @param settleMillis        délai sans modification avant de lire une image (fin d'écriture)
+     * @param plateCooldownMillis délai pendant lequel une même plaque n'est plus enregistrée
+     * @param dedupeCapacity      empreintes d'images mémorisées
+     */
+    public record Config(Path entryDirectory, Path exitDirectory, int batchSize, long lingerMillis,
+                         long settleMillis, long plateCooldownMillis, int dedupeCapacity) {
+        public Config {
+            Objects.requireNonNull(entryDirectory, "Dossier d'entrée requis");
+            Objects.requireNonNull(exitDirectory, "Dossier de sortie requis");
+            if (entryDirectory.toAbsolutePath().normalize().equals(exitDirectory.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("Les voies d'entrée et de sortie doivent avoir des dossiers distincts");
+            }
+            if (batchSize < 1 || lingerMillis < 0 || settleMillis < 0 || plateCooldownMillis < 0 || dedupeCapacity < 1) {
+                throw new IllegalArgumentException("Paramètres d'ingestion invalides");
+            }
+        }
+    }
+
+    /**
+     * Instantané des métriques de l'ingestion.
+     *
+     * @param detected          images détectées dans le dossier
+     * @param duplicates        images écartées car déjà traitées
+     * @param scanned           images lues par l'OCR
+     * @param failed            images illisibles ou en échec d'OCR
+     * @param unrecognized      images sans plaque reconnue
+     * @param entries           entrées enregistrées
+     * @param exits             sorties enregistrées
+     * @param ignored           passages sans effet (véhicule déjà présent en entrée, absent en sortie)
+     * @param batches           lots enregistrés
+     * @param backlog           images et passages en attente de traitement
+     * @param imagesPerSecond   images lues par seconde depuis le démarrage
+     * @param meanLatencyMillis délai moyen entre la détection d'une image et l'enregistrement du passage
+     */
+    public record Stats(long detected, long duplicates, long scanned, long failed, long unrecognized,
+                        long entries, long exits, long ignored, long batches, int backlog, double imagesPerSecond,
+                        double meanLatencyMillis) {
+    }
+
+    /** Passage en attente d'enregistrement, avec l'instant de détection de l'image. */
+    private record Pending(VehiclePassage passage, long detectedAt) {
+    }
+
+    private final Config config;
+    private final PlateScanner scanner;
+    private final VehicleRepository repository;
+    private final WatchService watchService;
+    /** Boucles de surveillance et d'enregistrement, sur le pool {@code io} de {@link ExecutionService}. */
+    private final Future<?> watcher;
+    private final Future<?> registrar;
+    /** Lecture des images après leur délai d'écriture, sur le pool planifié {@code photo-reader}. */
+    private final ExecutionService.Pool reader;
+    private final Map<Path, ScheduledFuture<?>> settling = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final BlockingQueue<Pending> passages = new LinkedBlockingQueue<>();
+    /** Empreintes déjà traitées, la plus ancienne en premier. Accès sous verrou. */
+    private final LinkedHashMap<String, Boolean> seenHashes = new LinkedHashMap<>();
+    private final Map<String, Long> lastPassage = new ConcurrentHashMap<>();
+    private final long startedAt = System.nanoTime();
+    private volatile boolean closed;
+
+    private final LongAdder detected = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder unrecognized = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder exits = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder registered = new LongAdder();
+
+    /**
+     * Démarre la surveillance des deux dossiers ; les images déjà présentes sont ignorées.
+     *
+     * @throws IOException si un dossier ne peut pas être surveillé
+     */
+    public PhotoIngestionService(Config config, PlateScanner scanner, VehicleRepository repository) throws IOException {
+        this.config = Objects.requireNonNull(config, "Configuration requise");
+        this.scanner = Objects.requireNonNull(scanner, "Lecteur de plaques requis");
+        this.repository = Objects.requireNonNull(repository, "Repository requis");
+        this.watchService = config.entryDirectory().getFileSystem().newWatchService();
+        for (Path directory : List.of(config.entryDirectory(), config.exitDirectory())) {
+            Files.createDirectories(directory);
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        ExecutionService execution = ExecutionService.getInstance();
+        this.reader = execution.scheduledPool("photo-reader", 1);
+        this.watcher = execution.io().submit(this::watchLoop);
+        this.registrar = execution.io().submit(this::registerLoop);
+        System.out.println("Surveillance des photos : entrée " + config.entryDirectory().toAbsolutePath()
+                + ", sortie " + config.exitDirectory().toAbsolutePath());
+    }
+
+    /**
+     * Lit la configuration dans ingestion.properties.
+     *
+     * @return configuration, ou {@code null} si l'ingestion n'est pas activée
+     */
+    public static Config loadConfig() {
+        Properties properties = new Properties();
+        try (InputStream input = PhotoIngestionService.class.getClassLoader().getResourceAsStream("ingestion.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("Configuration d'ingestion illisible : " + e.getMessage());
+        }
+        if (!"1".equals(properties.getProperty("ingest.enabled", "0").trim())) {
+            return null;
+        }
+        try {
+            return new Config(
+                    Path.of(properties.getProperty("ingest.entryDirectory", "data-out/VehiclePhotos/entry").trim()),
+                    Path.of(properties.getProperty("ingest.exitDirectory", "data-out/VehiclePhotos/exit").trim()),
+                    Integer.parseInt(properties.getProperty("ingest.batchSize", "32").trim()),
+                    Long.parseLong(properties.getProperty("ingest.lingerMs", "500").trim()),
+                    Long.parseLong(properties.getProperty("ingest.settleMs", "300").trim()),
+                    Long.parseLong(properties.getProperty("ingest.plateCooldownMs", "60000").trim()),
+                    Integer.parseInt(properties.getProperty("ingest.dedupeCapacity", "10000").trim())
+            );
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Configuration d'ingestion invalide : " + e.getMessage(), e);
+        }
+    }
+
+    private void watchLoop() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // événements perdus : on reprend tout le dossier, les images déjà vues seront écartées
+                    rescan(directory);
+                } else {
+                    schedule(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                System.err.println("Dossier surveillé inaccessible : " + directory);
+                return;
+            }
+        }
+    }
+
+    private void rescan(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            files.forEach(this::schedule);
+        } catch (IOException e) {
+            System.err.println("Lecture du dossier impossible : " + e.getMessage());
+        }
+    }
+
+    /** Reporte la lecture tant que le fichier est modifié : une caméra peut encore être en train de l'écrire. */
+    private void schedule(Path file) {
+        if (closed || !isImage(file)) {
+            return;
+        }
+        settling.compute(file, (path, previous) -> {
+            if (previous == null) {
+                detected.increment();
+            } else {
+                previous.cancel(false);
+            }
+            long detectedAt = System.nanoTime();
+            return reader.schedule(() -> read(path, detectedAt), config.settleMillis(), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private void read(Path file, long detectedAt) {
+        settling.remove(file);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            failed.increment();
+            System.err.println("Photo illisible : " + file + " (" + e.getMessage() + ")");
+            return;
+        }
+        if (!firstSeen(sha256(bytes))) {
+            duplicates.increment();
+            return;
+        }
+        submit(file, bytes, detectedAt);
+    }
+
+    private void submit(Path file, byte[] bytes, long detectedAt) {
+        inFlight.incrementAndGet();
+        scanner.read(ByteBuffer.wrap(bytes)).whenComplete((reading, error) -> {
+            inFlight.decrementAndGet();
+            if (error instanceof RejectedExecutionException
+                    || error != null && error.getCause() instanceof RejectedExecutionException) {
+                // file OCR pleine : nouvel essai plus tard, sans bloquer la lecture du dossier
+                if (!closed) {
+                    reader.schedule(() -> submit(file, bytes, detectedAt), config.settleMillis(), TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            if (error != null) {
+                failed.increment();
+                System.err.println("Échec de l'OCR pour " + file.getFileName() + " : " + error.getMessage());
+                return;
+            }
+            scanned.increment();
+            String plate = PlateNormalizer.normalize(reading.text());
+            if (plate.length() < MIN_PLATE_LENGTH) {
+                unrecognized.increment();
+                return;
+            }
+            passages.add(new Pending(new VehiclePassage(plate, LocalDateTime.now(), laneOf(file)), detectedAt));
+        });
+    }
+
+    /** La voie est celle du dossier où la caméra a déposé la photo. */
+    private VehiclePassage.Lane laneOf(Path file) {
+        return file.getParent().equals(config.exitDirectory()) ? VehiclePassage.Lane.EXIT : VehiclePassage.Lane.ENTRY;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Mémorise une empreinte ; au-delà de la capacité, les plus anciennes sont oubliées. */
+    private boolean firstSeen(String hash) {
+        synchronized (seenHashes) {
+            if (seenHashes.putIfAbsent(hash, Boolean.TRUE) != null) {
+                return false;
+            }
+            if (seenHashes.size() > config.dedupeCapacity()) {
+                seenHashes.remove(seenHashes.keySet().iterator().next());
+            }
+            return true;
+        }
+    }
+
+    private void registerLoop() {
+        List<Pending> batch = new ArrayList<>(config.batchSize());
+        while (!closed || !passages.isEmpty()) {
+            try {
+                Pending first = passages.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.lingerMillis());
+                while (batch.size() < config.batchSize()) {
+                    Pending next = passages.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                register(batch);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    passages.drainTo(batch);
+                    register(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void register(List<Pending> batch) {
+        long now = System.currentTimeMillis();
+        List<VehiclePassage> accepted = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            // délai compté par voie : une sortie rapide n'est pas écartée par la photo d'entrée
+            String key = pending.passage().lane() + " " + pending.passage().plateNumber();
+            Long last = lastPassage.get(key);
+            if (last != null && now - last < config.plateCooldownMillis()) {
+                duplicates.increment();
+                continue;
+            }
+            lastPassage.put(key, now);
+            accepted.add(pending.passage());
+        }
+        lastPassage.values().removeIf(last -> now - last >= config.plateCooldownMillis());
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            List<VehicleChangeEvent> events = repository.registerPassages(accepted);
+            for (VehicleChangeEvent event : events) {
+                if (event.type() == VehicleChangeEvent.Type.ADDED) {
+                    entries.increment();
+                } else {
+                    exits.increment();
+                }
+            }
+            ignored.add(accepted.size() - events.size());
+            batches.increment();
+            long end = System.nanoTime();
+            for (Pending pending : batch) {
+                latencyNanos.add(end - pending.detectedAt());
+                registered.increment();
+            }
+        } catch (RuntimeException e) {
+            failed.add(accepted.size());
+            System.err.println("Enregistrement des passages impossible : " + e.getMessage());
+        }
+    }
+
+    public Stats stats() {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        long done = registered.sum();
+        return new Stats(
+                detected.sum(),
+                duplicates.sum(),
+                scanned.sum(),
+                failed.sum(),
+                unrecognized.sum(),
+                entries.sum(),
+                exits.sum(),
+                ignored.sum(),
+                batches.sum(),
+                settling.size() + inFlight.get() + passages.size(),
+                seconds > 0 ? scanned.sum() / seconds : 0,
+                done == 0 ? 0 : latencyNanos.sum() / 1e6 / done
+        );
+    }
+
+    /**
+     * Arrête la surveillance et enregistre les passages déjà reconnus.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Fermeture de la surveillance impossible : " + e.getMessage());
+        }
+        reader.shutdownNow();
+        // la boucle d'enregistrement voit la fermeture à sa prochaine attente et enregistre les passages restants
+        try {
+            watcher.get(1, TimeUnit.SECONDS);
+            registrar.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Arrêt de l'ingestion incomplet : " + e);
+        }
+    }
+
+    /**
+     * Lance l'ingestion seule, sans interface, jusqu'à l'arrêt du processus.
+     */
+    public static void main(String[] args) throws Exception {
+        Config config = loadConfig();
+        if (config == null) {
+            System.err.println("Ingestion désactivée (ingest.enabled=0 dans ingestion.properties)");
+            return;
+        }
+        VehicleRepository repository = VehicleRepository.getInstance();
+        PhotoIngestionService service = new PhotoIngestionService(config, new PlateScanner(), repository);
+        MetricsExporter.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.close();
+            OcrEngine.shutdown();
+            VehicleRepository.shutdown();
+            MetricsExporter.shutdown();
+            ExecutionService.shutdown();
+            System.out.println("Ingestion arrêtée : " + service.stats());
+        }));
+        while (true) {
+            Thread.sleep(60_000);
+            System.out.println("Ingestion : " + service.stats());
+        }
+    }
+}
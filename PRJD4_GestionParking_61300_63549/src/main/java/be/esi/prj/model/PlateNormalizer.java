@@ -0,0 +1,85 @@
+package be.esi.prj.model;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Nettoyage des plaques lues par OCR ou saisies à la main.
+ * <p>
+ * {@link #normalize} garde la plaque lisible (majuscules, chiffres, tirets) ; {@link #canonical} la réduit
+ * à une clé de comparaison où les caractères que l'OCR confond (O/0, I/1, B/8...) sont identiques
+ * et les tirets ignorés. Deux lectures d'une même plaque ont ainsi la même clé canonique.
+ */
+public final class PlateNormalizer {
+
+    private static final Pattern NOT_PLATE = Pattern.compile("[^A-Z0-9-]");
+    private static final Pattern HYPHENS = Pattern.compile("-{2,}");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s._]+");
+    /** Remplacement de chaque caractère par son représentant dans la clé canonique. */
+    private static final char[] CANONICAL = new char[128];
+
+    static {
+        for (char c = 0; c < CANONICAL.length; c++) {
+            CANONICAL[c] = c;
+        }
+        map("OQD", '0');
+        map("IL", '1');
+        map("Z", '2');
+        map("S", '5');
+        map("G", '6');
+        map("B", '8');
+    }
+
+    private static void map(String confusable, char digit) {
+        for (char c : confusable.toCharArray()) {
+            CANONICAL[c] = digit;
+        }
+    }
+
+    private PlateNormalizer() {
+    }
+
+    /**
+     * Met une plaque en forme : majuscules puis suppression de tout ce qui n'est ni lettre, ni chiffre,
+     * ni tiret. Les séparateurs (espace, point) deviennent des tirets.
+     *
+     * @param raw texte brut
+     * @return plaque nettoyée, vide si {@code raw} est {@code null}
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return "";
+        }
+        // majuscules d'abord : les minuscules lues par l'OCR sont conservées
+        String upper = raw.strip().toUpperCase(Locale.ROOT);
+        String cleaned = NOT_PLATE.matcher(SEPARATORS.matcher(upper).replaceAll("-")).replaceAll("");
+        cleaned = HYPHENS.matcher(cleaned).replaceAll("-");
+        int start = 0;
+        int end = cleaned.length();
+        while (start < end && cleaned.charAt(start) == '-') {
+            start++;
+        }
+        while (end > start && cleaned.charAt(end - 1) == '-') {
+            end--;
+        }
+        return cleaned.substring(start, end);
+    }
+
+    /**
+     * Clé de comparaison tolérante aux confusions de l'OCR.
+     *
+     * @param raw plaque brute ou déjà nettoyée
+     * @return clé sans tirets, caractères confondus remplacés par un chiffre
+     */
+    public static String canonical(String raw) {
+        String plate = normalize(raw);
+        StringBuilder key = new StringBuilder(plate.length());
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            if (c != '-') {
+                key.append(CANONICAL[c]);
+            }
+        }
+        return key.toString();
+    }
+}
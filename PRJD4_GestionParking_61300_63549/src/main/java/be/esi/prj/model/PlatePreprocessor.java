@@ -0,0 +1,327 @@
+package be.esi.prj.model;
+
+import nu.pattern.OpenCV;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prépare une photo de véhicule pour l'OCR de la plaque, avec OpenCV :
+ * réduction, niveaux de gris, recherche de la plaque par contours, redressement et découpe,
+ * puis binarisation de la seule zone de la plaque. Tesseract n'analyse ainsi qu'une petite image
+ * contenant une ligne de texte au lieu de la photo entière.
+ * <p>
+ * L'image peut venir d'un fichier (projeté en mémoire), d'octets encodés, d'une {@link BufferedImage}
+ * ou d'une trame {@link Mat} : elle est décodée une seule fois et aucun fichier temporaire n'est écrit.
+ * <p>
+ * Si la bibliothèque native OpenCV ne peut pas être chargée, {@link #isAvailable()} renvoie
+ * {@code false} et l'appelant doit passer l'image entière à Tesseract.
+ */
+public class PlatePreprocessor {
+
+    /** Largeur de travail pour la recherche de la plaque. */
+    private static final int DETECTION_WIDTH = 1024;
+    /** Hauteur minimale de la plaque découpée : Tesseract lit mal des caractères de moins de 20 pixels. */
+    private static final int MIN_PLATE_HEIGHT = 80;
+    /** Rapport largeur/hauteur admis pour une plaque (européenne : environ 4,7). */
+    private static final double MIN_RATIO = 2.0;
+    private static final double MAX_RATIO = 6.5;
+    /** Surface minimale d'une plaque, en part de l'image réduite. */
+    private static final double MIN_AREA_SHARE = 0.002;
+
+    private static Boolean available;
+
+    /**
+     * Zone de plaque prête pour l'OCR : pixels en niveaux de gris (un octet par pixel, ligne par ligne),
+     * dans un tampon direct transmis tel quel à Tesseract.
+     *
+     * @param pixels      plaque binarisée (ou image entière si aucune plaque n'a été trouvée)
+     * @param width       largeur en pixels
+     * @param height      hauteur en pixels
+     * @param region      zone de la plaque dans l'image d'origine, {@code null} si non trouvée
+     * @param stageMillis durée de chaque étape, dans l'ordre d'exécution
+     */
+    public record Result(ByteBuffer pixels, int width, int height, Rectangle region, Map<String, Double> stageMillis) {
+
+        /**
+         * @return copie de la plaque en image AWT, pour l'affichage
+         */
+        public BufferedImage toImage() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            pixels.duplicate().rewind().get(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+            return image;
+        }
+    }
+
+    /**
+     * Charge la bibliothèque native au premier appel.
+     *
+     * @return {@code true} si OpenCV est utilisable
+     */
+    public static synchronized boolean isAvailable() {
+        if (available == null) {
+            try {
+                OpenCV.loadLocally();
+                available = true;
+            } catch (Throwable e) {
+                System.err.println("OpenCV indisponible, OCR sur l'image entière : " + e.getMessage());
+                available = false;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Lit une image sur disque puis la prépare. Le fichier est projeté en mémoire et décodé
+     * directement depuis la projection, sans copie intermédiaire.
+     *
+     * @param imageFile photo du véhicule (JPEG, PNG...)
+     * @return plaque prête pour l'OCR
+     * @throws IllegalArgumentException si l'image est illisible
+     */
+    public Result process(File imageFile) {
+        try (FileChannel channel = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+            return process(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Image illisible : " + imageFile, e);
+        }
+    }
+
+    /**
+     * Décode une image encodée (JPEG, PNG...) présente en mémoire puis la prépare.
+     * Un tampon direct est décodé sur place ; un tampon sur tableau est copié une fois.
+     *
+     * @param encoded octets de l'image, de la position à la limite
+     * @return plaque prête pour l'OCR
+     * @throws IllegalArgumentException si l'image est illisible
+     */
+    public Result process(ByteBuffer encoded) {
+        Timer timer = new Timer();
+        Mat raw;
+        if (encoded.isDirect()) {
+            raw = new Mat(1, encoded.remaining(), CvType.CV_8UC1, encoded.slice());
+        } else {
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.duplicate().get(bytes);
+            raw = new MatOfByte(bytes);
+        }
+        Mat color = Imgcodecs.imdecode(raw, Imgcodecs.IMREAD_COLOR);
+        raw.release();
+        timer.stage("decode");
+        if (color.empty()) {
+            throw new IllegalArgumentException("Image illisible");
+        }
+        try {
+            return process(color, timer);
+        } finally {
+            color.release();
+        }
+    }
+
+    /**
+     * Prépare une image déjà décodée.
+     *
+     * @param image image AWT (par exemple une capture de caméra)
+     * @return plaque prête pour l'OCR
+     */
+    public Result process(BufferedImage image) {
+        Timer timer = new Timer();
+        Mat frame = toMat(image);
+        timer.stage("decode");
+        try {
+            return process(frame, timer);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Prépare une trame brute. La trame n'est ni copiée ni libérée.
+     *
+     * @param frame image BGR (3 canaux), BGRA (4 canaux) ou niveaux de gris (1 canal), sur 8 bits
+     * @return plaque prête pour l'OCR
+     */
+    public Result process(Mat frame) {
+        return process(frame, new Timer());
+    }
+
+    private static Mat toMat(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            int type = image.getType() == BufferedImage.TYPE_BYTE_GRAY ? CvType.CV_8UC1 : CvType.CV_8UC3;
+            Mat mat = new Mat(image.getHeight(), image.getWidth(), type);
+            mat.put(0, 0, pixels);
+            return mat;
+        }
+        BufferedImage bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = bgr.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return toMat(bgr);
+    }
+
+    private Result process(Mat frame, Timer timer) {
+        Mat gray = frame.channels() == 1 ? frame : new Mat();
+        Mat small = new Mat();
+        Mat edges = new Mat();
+        List<Mat> temporaries = new ArrayList<>(List.of(small, edges));
+        try {
+            if (gray != frame) {
+                temporaries.add(gray);
+                int conversion = frame.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY;
+                Imgproc.cvtColor(frame, gray, conversion);
+            }
+            timer.stage("grayscale");
+
+            double scale = Math.min(1.0, (double) DETECTION_WIDTH / gray.cols());
+            if (scale < 1.0) {
+                Imgproc.resize(gray, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+            } else {
+                gray.copyTo(small);
+            }
+            timer.stage("downscale");
+
+            // contours marqués (bords de la plaque et caractères) regroupés par une fermeture horizontale
+            Imgproc.GaussianBlur(small, edges, new Size(5, 5), 0);
+            Imgproc.Canny(edges, edges, 50, 150);
+            Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(17, 3));
+            temporaries.add(kernel);
+            Imgproc.morphologyEx(edges, edges, Imgproc.MORPH_CLOSE, kernel);
+            timer.stage("threshold");
+
+            RotatedRect candidate = findPlate(edges, small.cols() * (double) small.rows());
+            timer.stage("contours");
+
+            Mat plate;
+            Rectangle region = null;
+            if (candidate != null) {
+                RotatedRect full = new RotatedRect(
+                        new Point(candidate.center.x / scale, candidate.center.y / scale),
+                        new Size(candidate.size.width / scale, candidate.size.height / scale),
+                        candidate.angle
+                );
+                plate = deskewAndCrop(gray, full);
+                org.opencv.core.Rect bounds = full.boundingRect();
+                region = new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height)
+                        .intersection(new Rectangle(0, 0, gray.cols(), gray.rows()));
+            } else {
+                plate = small.clone();
+            }
+            temporaries.add(plate);
+            if (plate.rows() < MIN_PLATE_HEIGHT) {
+                double factor = (double) MIN_PLATE_HEIGHT / plate.rows();
+                Imgproc.resize(plate, plate, new Size(), factor, factor, Imgproc.INTER_CUBIC);
+            }
+            timer.stage("crop");
+
+            // le seuillage écrit directement dans le tampon qui sera passé à Tesseract
+            ByteBuffer pixels = ByteBuffer.allocateDirect(plate.rows() * plate.cols());
+            Mat binary = new Mat(plate.rows(), plate.cols(), CvType.CV_8UC1, pixels);
+            temporaries.add(binary);
+            Imgproc.threshold(plate, binary, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+            timer.stage("binarize");
+            return new Result(pixels, plate.cols(), plate.rows(), region, timer.stages());
+        } finally {
+            temporaries.forEach(Mat::release);
+        }
+    }
+
+    /**
+     * Retient le plus grand contour dont le rectangle orienté a les proportions d'une plaque.
+     */
+    private static RotatedRect findPlate(Mat edges, double imageArea) {
+        List<MatOfPoint> contours = new ArrayList<>();
+        Mat hierarchy = new Mat();
+        Imgproc.findContours(edges, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        hierarchy.release();
+        RotatedRect best = null;
+        double bestArea = imageArea * MIN_AREA_SHARE;
+        for (MatOfPoint contour : contours) {
+            MatOfPoint2f points = new MatOfPoint2f(contour.toArray());
+            RotatedRect rect = Imgproc.minAreaRect(points);
+            points.release();
+            contour.release();
+            double width = Math.max(rect.size.width, rect.size.height);
+            double height = Math.min(rect.size.width, rect.size.height);
+            double area = width * height;
+            if (height > 0 && area > bestArea) {
+                double ratio = width / height;
+                if (ratio >= MIN_RATIO && ratio <= MAX_RATIO) {
+                    best = rect;
+                    bestArea = area;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Remet la plaque à l'horizontale puis la découpe. Seul le carré englobant la plaque est pivoté,
+     * pas l'image entière.
+     */
+    private static Mat deskewAndCrop(Mat gray, RotatedRect plate) {
+        double angle = plate.angle;
+        Size size = plate.size;
+        // minAreaRect donne un angle dans [0, 90) : on ramène le grand côté à l'horizontale
+        if (size.width < size.height) {
+            angle -= 90;
+            size = new Size(size.height, size.width);
+        }
+        int half = (int) Math.ceil(Math.hypot(size.width, size.height) / 2) + 2;
+        int x0 = Math.max(0, (int) plate.center.x - half);
+        int y0 = Math.max(0, (int) plate.center.y - half);
+        int x1 = Math.min(gray.cols(), (int) plate.center.x + half);
+        int y1 = Math.min(gray.rows(), (int) plate.center.y + half);
+        Mat around = gray.submat(y0, y1, x0, x1);
+        Point center = new Point(plate.center.x - x0, plate.center.y - y0);
+        Mat rotation = Imgproc.getRotationMatrix2D(center, angle, 1.0);
+        Mat rotated = new Mat();
+        Mat cropped = new Mat();
+        try {
+            Imgproc.warpAffine(around, rotated, rotation, around.size(), Imgproc.INTER_LINEAR);
+            Imgproc.getRectSubPix(rotated, size, center, cropped);
+            return cropped;
+        } finally {
+            around.release();
+            rotation.release();
+            rotated.release();
+        }
+    }
+
+    /** Mesure la durée de chaque étape depuis la fin de la précédente. */
+    static final class Timer {
+        private final Map<String, Double> stages = new LinkedHashMap<>();
+        private long last = System.nanoTime();
+
+        void stage(String name) {
+            long now = System.nanoTime();
+            stages.merge(name, (now - last) / 1e6, Double::sum);
+            last = now;
+        }
+
+        Map<String, Double> stages() {
+            return stages;
+        }
+    }
+}
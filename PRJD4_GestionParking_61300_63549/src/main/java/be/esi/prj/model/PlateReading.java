@@ -0,0 +1,14 @@
+package be.esi.prj.model;
+
+import java.awt.Rectangle;
+import java.util.Map;
+
+/**
+ * Résultat de la lecture d'une plaque.
+ *
+ * @param text        texte brut reconnu
+ * @param region      zone de la plaque dans l'image, {@code null} si l'image entière a été lue
+ * @param stageMillis durée de chaque étape (préparation puis {@code ocr}), dans l'ordre d'exécution
+ */
+public record PlateReading(String text, Rectangle region, Map<String, Double> stageMillis) {
+}
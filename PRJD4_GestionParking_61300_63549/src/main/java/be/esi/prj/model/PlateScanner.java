@@ -1,40 +1,222 @@
 package be.esi.prj.model;
 
-import javafx.application.Platform;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
+import org.opencv.core.Mat;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Lecture des plaques par OCR. Le travail est confié au service partagé {@link OcrEngine} :
+ * créer un PlateScanner ne réinitialise pas Tesseract.
+ * Quand OpenCV est disponible, la plaque est d'abord localisée et découpée ({@link PlatePreprocessor})
+ * puis lue comme une seule ligne limitée aux caractères d'une plaque ; ses pixels sont passés
+ * directement à Tesseract.
+ * <p>
+ * Les images en mémoire (tampon, trame) ne sont pas copiées : l'appelant ne doit pas les modifier
+ * avant la fin de la lecture.
+ * <p>
+ * Les lectures de fichiers et de tampons passent par un {@link OcrResultCache} : une image déjà lue
+ * (même contenu) est rendue sans passer par le service OCR. La lecture du fichier, l'empreinte et la
+ * recherche en cache (disque compris) sont faites sur le pool {@code io}, jamais sur le thread appelant,
+ * qui peut être le thread JavaFX.
+ * <p>
+ * Chaque lecture réussie est mesurée de la demande au résultat, attente comprise, dans
+ * {@code ocr_read_seconds} (source {@code engine} ou {@code cache}) ; chaque étape du service OCR
+ * l'est dans {@code ocr_stage_seconds}.
+ */
 public class PlateScanner {
-    private final Tesseract tesseract;
-    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    /** Caractères pouvant figurer sur une plaque. */
+    static final String PLATE_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-";
+
+    private static final Metrics.Histogram ENGINE_READS = Metrics.histogram("ocr_read_seconds", "source", "engine");
+    private static final Metrics.Histogram CACHED_READS = Metrics.histogram("ocr_read_seconds", "source", "cache");
+    private static final Metrics.Counter FAILED_READS = Metrics.counter("ocr_failed_total");
+    private static final Map<String, Metrics.Histogram> STAGES = new ConcurrentHashMap<>();
+
+    private final OcrEngine engine;
+    private final OcrResultCache cache;
+    private final PlatePreprocessor preprocessor = new PlatePreprocessor();
 
     public PlateScanner() {
-        this.tesseract = new Tesseract();
-        tesseract.setLanguage("fra");
-        tesseract.setDatapath("C:/Program Files/Tesseract-OCR/tessdata");
+        this(OcrEngine.getInstance(), OcrResultCache.getInstance());
+    }
+
+    public PlateScanner(OcrEngine engine) {
+        this(engine, new OcrResultCache(OcrResultCache.Config.disabled()));
+    }
+
+    public PlateScanner(OcrEngine engine, OcrResultCache cache) {
+        this.engine = Objects.requireNonNull(engine, "Service OCR requis");
+        this.cache = Objects.requireNonNull(cache, "Cache OCR requis");
+    }
+
+    /**
+     * OCR asynchrone, exécuté par un thread du service OCR.
+     * Le résultat n'est pas rendu sur le thread JavaFX : l'appelant utilise {@code Platform.runLater}.
+     *
+     * @param imageFile image à traiter
+     * @return texte brut reconnu
+     */
+    public CompletableFuture<String> scan(File imageFile) {
+        return read(imageFile).thenApply(PlateReading::text);
+    }
+
+    /**
+     * Comme {@link #scan(File)}, avec la zone de la plaque et la durée de chaque étape.
+     *
+     * @param imageFile image à traiter
+     * @return lecture de la plaque
+     */
+    public CompletableFuture<PlateReading> read(File imageFile) {
+        if (!cache.isEnabled()) {
+            return read(p -> p.process(imageFile), tesseract -> tesseract.doOCR(imageFile));
+        }
+        // le fichier est lu une seule fois : son contenu sert à l'empreinte, au décodage et à la lecture de secours
+        return cached(() -> {
+            try {
+                return ByteBuffer.wrap(Files.readAllBytes(imageFile.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Lit la plaque d'une image déjà décodée.
+     *
+     * @param image image AWT
+     * @return lecture de la plaque
+     */
+    public CompletableFuture<PlateReading> read(BufferedImage image) {
+        return read(p -> p.process(image), tesseract -> tesseract.doOCR(image));
+    }
+
+    /**
+     * Lit la plaque d'une image encodée (JPEG, PNG...) en mémoire, par exemple reçue d'une caméra.
+     *
+     * @param encoded octets de l'image, de la position à la limite
+     * @return lecture de la plaque
+     */
+    public CompletableFuture<PlateReading> read(ByteBuffer encoded) {
+        if (!cache.isEnabled()) {
+            return read(p -> p.process(encoded), tesseract -> tesseract.doOCR(decode(encoded)));
+        }
+        return cached(() -> encoded);
+    }
+
+    /**
+     * Lit la plaque d'une trame brute OpenCV (BGR, BGRA ou niveaux de gris).
+     *
+     * @param frame trame, ni copiée ni libérée
+     * @return lecture de la plaque
+     */
+    public CompletableFuture<PlateReading> read(Mat frame) {
+        return read(p -> p.process(frame), tesseract -> {
+            throw new IllegalStateException("OpenCV indisponible");
+        });
+    }
+
+    public OcrResultCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Lit le contenu, calcule son empreinte et cherche la lecture en cache sur un thread io ;
+     * une image absente du cache est confiée au service OCR.
+     *
+     * @param content contenu encodé de l'image, lu sur le thread io
+     */
+    private CompletableFuture<PlateReading> cached(Supplier<ByteBuffer> content) {
+        ExecutionService.Pool io = ExecutionService.getInstance().io();
+        return io.supplyAsync(content).thenComposeAsync(encoded -> {
+            long start = System.nanoTime();
+            String key = OcrResultCache.key(encoded);
+            Optional<PlateReading> previous = cache.get(key);
+            if (previous.isPresent()) {
+                PlateReading reading = previous.get();
+                long elapsed = System.nanoTime() - start;
+                CACHED_READS.record(elapsed);
+                return CompletableFuture.completedFuture(new PlateReading(reading.text(), reading.region(),
+                        Map.of("cache", elapsed / 1e6)));
+            }
+            return read(p -> p.process(encoded), tesseract -> tesseract.doOCR(decode(encoded)))
+                    .thenApplyAsync(reading -> {
+                        cache.put(key, reading);
+                        return reading;
+                    }, io);
+        }, io);
+    }
+
+    private static BufferedImage decode(ByteBuffer encoded) {
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.duplicate().get(bytes);
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (image == null) {
+                throw new IllegalArgumentException("Image illisible");
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * OCR asynchrone : resultat sur le JavaFX Application Thread
-     * @param imageFile   image à traiter
-     * @param onSuccess   callback texte brut
-     * @param onError     callback exception
+     * @param prepare  préparation OpenCV de l'image
+     * @param fallback lecture de l'image entière si OpenCV est indisponible
      */
-    public void ocrAsync(File imageFile,
-                         Consumer<String> onSuccess,
-                         Consumer<Throwable> onError) {
-        executor.submit(() -> {
+    private CompletableFuture<PlateReading> read(Function<PlatePreprocessor, PlatePreprocessor.Result> prepare,
+                                                 OcrEngine.Task<String> fallback) {
+        long submitted = System.nanoTime();
+        return engine.submit(tesseract -> {
+            Map<String, Double> stages = new LinkedHashMap<>();
+            // chargement de la bibliothèque native sur un thread OCR, jamais sur le thread JavaFX
+            if (!PlatePreprocessor.isAvailable()) {
+                long start = System.nanoTime();
+                String text = fallback.run(tesseract);
+                stages.put("ocr", (System.nanoTime() - start) / 1e6);
+                recordStages(stages);
+                return new PlateReading(text, null, stages);
+            }
+            PlatePreprocessor.Result prepared = prepare.apply(preprocessor);
+            stages.putAll(prepared.stageMillis());
+            long start = System.nanoTime();
+            String text;
+            OcrEngine.configureLine(tesseract, PLATE_CHARACTERS);
             try {
-                String text = tesseract.doOCR(imageFile);
-                Platform.runLater(() -> onSuccess.accept(text));
-            } catch (Throwable ex) {
-                Platform.runLater(() -> onError.accept(ex));
+                text = tesseract.doOCR(prepared.width(), prepared.height(), prepared.pixels(), null, 8);
+            } finally {
+                OcrEngine.resetLine(tesseract);
+            }
+            stages.put("ocr", (System.nanoTime() - start) / 1e6);
+            recordStages(stages);
+            return new PlateReading(text, prepared.region(), stages);
+        }).whenComplete((reading, error) -> {
+            if (error == null) {
+                ENGINE_READS.recordSince(submitted);
+            } else {
+                FAILED_READS.increment();
             }
         });
     }
+
+    private static void recordStages(Map<String, Double> stageMillis) {
+        stageMillis.forEach((stage, millis) -> STAGES
+                .computeIfAbsent(stage, name -> Metrics.histogram("ocr_stage_seconds", "stage", name))
+                .record((long) (millis * 1e6)));
+    }
 }
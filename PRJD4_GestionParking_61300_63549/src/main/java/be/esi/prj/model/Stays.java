@@ -0,0 +1,91 @@
+package be.esi.prj.model;
+
+import be.esi.prj.model.dto.VehicleDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Séjours à tarifer en masse, rangés en colonnes : entrée, sortie prévue et départ réel,
+ * en minutes depuis l'époque (heure locale lue comme de l'UTC, comme en base).
+ * Les tableaux ne sont pas copiés : ils ne doivent plus être modifiés une fois confiés.
+ *
+ * @param entry     minutes d'entrée
+ * @param exit      minutes de sortie prévue
+ * @param departure minutes de départ réel
+ */
+public record Stays(long[] entry, long[] exit, long[] departure) {
+
+    public Stays {
+        Objects.requireNonNull(entry, "Entrées requises");
+        Objects.requireNonNull(exit, "Sorties requises");
+        Objects.requireNonNull(departure, "Départs requis");
+        if (entry.length != exit.length || entry.length != departure.length) {
+            throw new IllegalArgumentException("Les colonnes n'ont pas la même longueur");
+        }
+    }
+
+    public int size() {
+        return entry.length;
+    }
+
+    public static long epochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Convertit des véhicules présents en séjours, comme s'ils partaient tous à {@code openUntil} :
+     * un véhicule sans sortie prévue est compté jusque-là, un véhicule en retard paie son supplément.
+     *
+     * @param vehicles  véhicules (le flux est consommé mais pas fermé)
+     * @param openUntil fin des séjours en cours
+     * @return séjours, dans l'ordre du flux
+     */
+    public static Stays from(Stream<VehicleDto> vehicles, LocalDateTime openUntil) {
+        Builder builder = new Builder(1_024);
+        long until = epochMinute(openUntil);
+        vehicles.forEach(vehicle -> {
+            long exit = vehicle.exitTime() != null ? epochMinute(vehicle.exitTime()) : until;
+            builder.add(epochMinute(vehicle.entryTime()), exit, Math.max(exit, until));
+        });
+        return builder.build();
+    }
+
+    /**
+     * Construction colonne par colonne, sans objet par séjour.
+     */
+    public static final class Builder {
+        private long[] entry;
+        private long[] exit;
+        private long[] departure;
+        private int size;
+
+        public Builder(int capacity) {
+            int initial = Math.max(capacity, 16);
+            entry = new long[initial];
+            exit = new long[initial];
+            departure = new long[initial];
+        }
+
+        public Builder add(long entryMinute, long exitMinute, long departureMinute) {
+            if (size == entry.length) {
+                int grown = entry.length + (entry.length >> 1);
+                entry = Arrays.copyOf(entry, grown);
+                exit = Arrays.copyOf(exit, grown);
+                departure = Arrays.copyOf(departure, grown);
+            }
+            entry[size] = entryMinute;
+            exit[size] = exitMinute;
+            departure[size] = departureMinute;
+            size++;
+            return this;
+        }
+
+        public Stays build() {
+            return new Stays(Arrays.copyOf(entry, size), Arrays.copyOf(exit, size), Arrays.copyOf(departure, size));
+        }
+    }
+}
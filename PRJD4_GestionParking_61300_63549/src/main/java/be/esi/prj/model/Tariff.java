@@ -0,0 +1,162 @@
+package be.esi.prj.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Grille tarifaire d'un parking, compilée au chargement.
+ * <p>
+ * Les tranches horaires sont déroulées en deux tables d'une case par minute de la journée (semaine,
+ * week-end) donnant le prix d'une unité de facturation commencée à cette minute. Le calcul ne manipule
+ * que des minutes depuis l'époque et des centimes en {@code long} : aucune allocation, aucun arrondi
+ * de {@code double}. Une instance est immuable et peut être partagée entre threads.
+ * <p>
+ * Règles, dans l'ordre :
+ * <ol>
+ *     <li>durée inférieure ou égale à la franchise : gratuit ;</li>
+ *     <li>durée d'au moins {@code longStayMinutes} avec un tarif journalier : chaque journée commencée
+ *     est facturée {@code dayRateCents} ;</li>
+ *     <li>sinon chaque unité commencée est facturée selon la tranche de sa première minute, le total
+ *     de chaque période de 24 h depuis l'entrée étant plafonné à {@code dailyCapCents} ;</li>
+ *     <li>un départ après la sortie prévue ajoute {@code lateSurchargeCents} par période de retard
+ *     complète de {@code latePeriodMinutes}.</li>
+ * </ol>
+ */
+public final class Tariff {
+
+    static final int MINUTES_PER_DAY = 1_440;
+
+    private final String name;
+    private final int unitMinutes;
+    private final int[] weekdayRates;
+    private final int[] weekendRates;
+    private final int graceMinutes;
+    private final long dailyCapCents;
+    private final int longStayMinutes;
+    private final long dayRateCents;
+    private final long lateSurchargeCents;
+    private final int latePeriodMinutes;
+
+    /**
+     * @param weekdayRates prix d'une unité par minute de début, lundi à vendredi (1440 cases, copiées)
+     * @param weekendRates idem pour samedi et dimanche
+     * @param dailyCapCents   plafond par période de 24 h, 0 sans plafond
+     * @param dayRateCents    prix d'une journée pour les longs séjours, 0 pour toujours facturer à l'unité
+     * @param lateSurchargeCents supplément par période de retard, 0 sans supplément
+     */
+    public Tariff(String name, int unitMinutes, int[] weekdayRates, int[] weekendRates, int graceMinutes,
+                  long dailyCapCents, int longStayMinutes, long dayRateCents,
+                  long lateSurchargeCents, int latePeriodMinutes) {
+        this.name = Objects.requireNonNull(name, "Nom du tarif requis");
+        if (unitMinutes < 1 || graceMinutes < 0 || dailyCapCents < 0 || longStayMinutes < 1
+                || dayRateCents < 0 || lateSurchargeCents < 0 || latePeriodMinutes < 1) {
+            throw new IllegalArgumentException("Paramètres du tarif " + name + " invalides");
+        }
+        this.unitMinutes = unitMinutes;
+        this.weekdayRates = checkRates(weekdayRates);
+        this.weekendRates = checkRates(weekendRates);
+        this.graceMinutes = graceMinutes;
+        this.dailyCapCents = dailyCapCents;
+        this.longStayMinutes = longStayMinutes;
+        this.dayRateCents = dayRateCents;
+        this.lateSurchargeCents = lateSurchargeCents;
+        this.latePeriodMinutes = latePeriodMinutes;
+    }
+
+    private int[] checkRates(int[] rates) {
+        if (rates == null || rates.length != MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Le tarif " + name + " doit couvrir les 1440 minutes de la journée");
+        }
+        for (int rate : rates) {
+            if (rate < 0) {
+                throw new IllegalArgumentException("Prix négatif dans le tarif " + name);
+            }
+        }
+        return rates.clone();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Montant dû, en centimes.
+     *
+     * @param entry     entrée, en minutes depuis l'époque
+     * @param exit      sortie prévue, en minutes depuis l'époque
+     * @param departure départ réel, en minutes depuis l'époque
+     * @return montant en centimes
+     */
+    public long feeCents(long entry, long exit, long departure) {
+        long duration = exit - entry;
+        if (duration < 0) {
+            throw new IllegalArgumentException("L'heure de sortie ne peut pas être avant l'heure d'entrée.");
+        }
+        long fee;
+        if (duration <= graceMinutes) {
+            fee = 0;
+        } else if (dayRateCents > 0 && duration >= longStayMinutes) {
+            fee = ceilDiv(duration, MINUTES_PER_DAY) * dayRateCents;
+        } else {
+            fee = unitsFee(entry, duration);
+        }
+        if (lateSurchargeCents > 0 && departure > exit) {
+            fee += (departure - exit) / latePeriodMinutes * lateSurchargeCents;
+        }
+        return fee;
+    }
+
+    /**
+     * Montant dû, en centimes, à partir de dates locales. Comme {@link java.time.Duration#toMinutes()},
+     * les durées sont comptées en minutes entières : une minute entamée n'est pas comptée.
+     */
+    public long feeCents(LocalDateTime entry, LocalDateTime exit, LocalDateTime departure) {
+        long entrySecond = entry.toEpochSecond(ZoneOffset.UTC);
+        long exitSecond = exit.toEpochSecond(ZoneOffset.UTC);
+        long entryMinute = Math.floorDiv(entrySecond, 60);
+        long exitMinute = entryMinute + (exitSecond - entrySecond) / 60;
+        return feeCents(entryMinute, exitMinute,
+                exitMinute + (departure.toEpochSecond(ZoneOffset.UTC) - exitSecond) / 60);
+    }
+
+    private long unitsFee(long entry, long duration) {
+        long units = ceilDiv(duration, unitMinutes);
+        long total = 0;
+        long window = 0;
+        long windowEnd = entry + MINUTES_PER_DAY;
+        long start = entry;
+        for (long unit = 0; unit < units; unit++, start += unitMinutes) {
+            if (start >= windowEnd) {
+                total += capped(window);
+                window = 0;
+                windowEnd += MINUTES_PER_DAY;
+            }
+            window += rateAt(start);
+        }
+        return total + capped(window);
+    }
+
+    private int rateAt(long epochMinute) {
+        long day = Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+        // 01/01/1970 était un jeudi : 0 = lundi ... 5 = samedi, 6 = dimanche
+        boolean weekend = Math.floorMod(day + 3, 7) >= 5;
+        int minute = Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        return weekend ? weekendRates[minute] : weekdayRates[minute];
+    }
+
+    private long capped(long amount) {
+        return dailyCapCents > 0 ? Math.min(amount, dailyCapCents) : amount;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    @Override
+    public String toString() {
+        return "Tariff[" + name + ", unité " + unitMinutes + " min, semaine " + Arrays.stream(weekdayRates).distinct().count()
+                + " prix, week-end " + Arrays.stream(weekendRates).distinct().count() + " prix]";
+    }
+}
@@ -0,0 +1,268 @@
+package be.esi.prj.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tarifs des parkings, lus dans un fichier et remplaçables à chaud.
+ * <p>
+ * Le fichier {@code config/tariff.properties} (ou la propriété système {@code tariff.file}) est
+ * surveillé : une modification est recompilée puis installée sans redémarrage. Un fichier invalide
+ * est signalé et l'ancien tarif reste en place. Sans fichier externe, le tariff.properties embarqué est utilisé.
+ * Les calculs lisent un instantané immuable : un remplacement n'interrompt aucun calcul en cours.
+ */
+public final class TariffEngine implements AutoCloseable {
+
+    private static TariffEngine instance;
+    private static final long POLL_SECONDS = 5;
+    private static final Metrics.Counter RELOADS = Metrics.counter("tariff_reloads_total", "result", "loaded");
+    private static final Metrics.Counter REJECTED_RELOADS = Metrics.counter("tariff_reloads_total", "result", "rejected");
+
+    /** Tarifs compilés, dans l'ordre du fichier ; le premier est le tarif par défaut. */
+    private record Snapshot(Map<String, Tariff> tariffs, Tariff defaultTariff, long modified) {
+    }
+
+    private final Path file;
+    private final ScheduledFuture<?> poller;
+    private volatile Snapshot snapshot;
+    /** Date du fichier lors de la dernière tentative, réussie ou non : un fichier invalide n'est relu qu'une fois modifié. */
+    private volatile long attempted;
+
+    /**
+     * @param file fichier externe surveillé, ou {@code null} pour le fichier embarqué seul
+     */
+    public TariffEngine(Path file) {
+        this.file = file;
+        this.snapshot = load();
+        this.attempted = snapshot.modified();
+        if (file == null) {
+            this.poller = null;
+            return;
+        }
+        this.poller = ExecutionService.getInstance().scheduledPool("tariff-reload", 1)
+                .scheduleWithFixedDelay(this::reloadIfModified, POLL_SECONDS, POLL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Retourne le moteur partagé, créé au premier appel.
+     *
+     * @return instance unique
+     */
+    public static synchronized TariffEngine getInstance() {
+        if (instance == null) {
+            instance = new TariffEngine(Path.of(System.getProperty("tariff.file", "config/tariff.properties")));
+        }
+        return instance;
+    }
+
+    /**
+     * Arrête la surveillance du fichier si le moteur partagé a été créé.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * @return tarif du premier parking déclaré
+     */
+    public Tariff defaultTariff() {
+        return snapshot.defaultTariff();
+    }
+
+    /**
+     * @param lot identifiant du parking dans {@code tariff.lots}
+     * @return tarif de ce parking
+     */
+    public Tariff tariff(String lot) {
+        Tariff tariff = snapshot.tariffs().get(lot);
+        if (tariff == null) {
+            throw new IllegalArgumentException("Parking inconnu : " + lot);
+        }
+        return tariff;
+    }
+
+    /**
+     * Relit le fichier et installe les nouveaux tarifs s'ils sont valides.
+     *
+     * @return {@code true} si les tarifs ont été remplacés
+     */
+    public synchronized boolean reload() {
+        try {
+            snapshot = load();
+            RELOADS.increment();
+            return true;
+        } catch (RuntimeException e) {
+            REJECTED_RELOADS.increment();
+            System.err.println("Tarifs non rechargés, les précédents restent en place : " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void reloadIfModified() {
+        try {
+            if (Files.exists(file)) {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (modified != attempted) {
+                    attempted = modified;
+                    reload();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Fichier de tarifs inaccessible : " + e.getMessage());
+        }
+    }
+
+    private Snapshot load() {
+        try {
+            Properties properties = new Properties();
+            long modified = 0;
+            if (file != null && Files.exists(file)) {
+                modified = Files.getLastModifiedTime(file).toMillis();
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } else {
+                try (InputStream input = TariffEngine.class.getClassLoader().getResourceAsStream("tariff.properties")) {
+                    if (input == null) {
+                        throw new IOException("tariff.properties introuvable");
+                    }
+                    properties.load(input);
+                }
+            }
+            Map<String, Tariff> tariffs = parse(properties);
+            return new Snapshot(tariffs, tariffs.values().iterator().next(), modified);
+        } catch (IOException e) {
+            throw new IllegalStateException("Tarifs illisibles : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compile les tarifs décrits dans des propriétés.
+     *
+     * @param properties propriétés {@code tariff.lots} et {@code tariff.<lot>.*}
+     * @return tarifs par parking, dans l'ordre de {@code tariff.lots}
+     * @throws IllegalArgumentException si une propriété est absente ou invalide
+     */
+    static Map<String, Tariff> parse(Properties properties) {
+        String lots = properties.getProperty("tariff.lots", "").trim();
+        if (lots.isEmpty()) {
+            throw new IllegalArgumentException("tariff.lots est vide");
+        }
+        Map<String, Tariff> tariffs = new LinkedHashMap<>();
+        for (String lot : lots.split(",")) {
+            String name = lot.trim();
+            if (tariffs.containsKey(name)) {
+                throw new IllegalArgumentException("Parking déclaré deux fois : " + name);
+            }
+            String prefix = "tariff." + name + ".";
+            int[] weekday = bands(name, require(properties, prefix + "weekday"));
+            String weekend = properties.getProperty(prefix + "weekend");
+            tariffs.put(name, new Tariff(
+                    name,
+                    integer(properties, prefix + "unitMinutes", "60"),
+                    weekday,
+                    weekend == null ? weekday : bands(name, weekend),
+                    integer(properties, prefix + "graceMinutes", "0"),
+                    integer(properties, prefix + "dailyCapCents", "0"),
+                    integer(properties, prefix + "longStayMinutes", String.valueOf(Tariff.MINUTES_PER_DAY)),
+                    integer(properties, prefix + "dayRateCents", "0"),
+                    integer(properties, prefix + "lateSurchargeCents", "0"),
+                    integer(properties, prefix + "latePeriodMinutes", "720")
+            ));
+        }
+        return Collections.unmodifiableMap(tariffs);
+    }
+
+    private static String require(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(key + " est requis");
+        }
+        return value;
+    }
+
+    private static int integer(Properties properties, String key, String defaultValue) {
+        try {
+            return Integer.parseInt(properties.getProperty(key, defaultValue).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " n'est pas un nombre entier");
+        }
+    }
+
+    /**
+     * Déroule des tranches {@code HH:mm-HH:mm=centimes} séparées par des virgules en une table par minute.
+     * Une tranche peut passer minuit (22:00-06:00) ; chaque minute doit être couverte une seule fois.
+     */
+    private static int[] bands(String lot, String spec) {
+        int[] rates = new int[Tariff.MINUTES_PER_DAY];
+        Arrays.fill(rates, -1);
+        for (String band : spec.split(",")) {
+            String[] parts = band.trim().split("=");
+            String[] range = parts[0].trim().split("-");
+            if (parts.length != 2 || range.length != 2) {
+                throw new IllegalArgumentException("Tranche invalide pour " + lot + " : " + band.trim());
+            }
+            int from = minuteOfDay(lot, range[0]);
+            int to = minuteOfDay(lot, range[1]);
+            int rate;
+            try {
+                rate = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Prix invalide pour " + lot + " : " + band.trim());
+            }
+            int length = Math.floorMod(to - from - 1, Tariff.MINUTES_PER_DAY) + 1;
+            for (int i = 0; i < length; i++) {
+                int minute = (from + i) % Tariff.MINUTES_PER_DAY;
+                if (rates[minute] >= 0) {
+                    throw new IllegalArgumentException("Tranches superposées pour " + lot + " à " + format(minute));
+                }
+                rates[minute] = rate;
+            }
+        }
+        for (int minute = 0; minute < rates.length; minute++) {
+            if (rates[minute] < 0) {
+                throw new IllegalArgumentException("Aucune tranche pour " + lot + " à " + format(minute));
+            }
+        }
+        return rates;
+    }
+
+    private static int minuteOfDay(String lot, String time) {
+        String[] parts = time.trim().split(":");
+        try {
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            if (parts.length > 2 || hours < 0 || hours > 24 || minutes < 0 || minutes > 59 || hours == 24 && minutes > 0) {
+                throw new NumberFormatException();
+            }
+            return (hours * 60 + minutes) % Tariff.MINUTES_PER_DAY;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Heure invalide pour " + lot + " : " + time.trim());
+        }
+    }
+
+    private static String format(int minute) {
+        return String.format("%02d:%02d", minute / 60, minute % 60);
+    }
+
+    @Override
+    public void close() {
+        if (poller != null) {
+            poller.cancel(false);
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package be.esi.prj.model.repository;
 
+import be.esi.prj.model.Metrics;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 /**
- * Gère une connexion unique à la base de données à l'aide des propriétés définies
+ * Gère le pool de connexions à la base de données à l'aide des propriétés définies
  * dans le fichier database.properties
  *
  */
 
 public class ConnectionManager {
     private static Properties properties = null;
-    private static Connection connection;
+    private static ConnectionPool pool;
 
     /**
      * Charge les propriétés de configuration de la base de données.
@@ -40,41 +41,84 @@ public class ConnectionManager {
     }
 
     /**
-     * Retourne une connexion JDBC
+     * Lit une propriété texte, avec une valeur par défaut si elle est absente.
+     */
+    static String stringProperty(String key, String defaultValue) {
+        String value = loadProperties().getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Lit une propriété entière, avec une valeur par défaut si elle est absente.
+     */
+    static long longProperty(String key, long defaultValue) {
+        String value = loadProperties().getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RepositoryException("Propriété invalide : " + key);
+        }
+    }
+
+    /**
+     * Retourne le pool de connexions partagé, créé au premier appel.
      *
-     * @return connexion à la base de données
-     * @throws RepositoryException si la connexion échoue
+     * @return pool de connexions
      */
-    public static synchronized Connection getConnection() {
-        if (connection == null) {
-            try {
-                loadProperties();
-                String url = properties.getProperty("db.url");
-                String user = properties.getProperty("db.user");
-                String password = properties.getProperty("db.password");
-                connection = DriverManager.getConnection(url, user, password);
-                System.out.println("Connection established.");
-            } catch (SQLException ex) {
-                throw new RepositoryException("Connection failed");
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            loadProperties();
+            String url = properties.getProperty("db.url");
+            String user = properties.getProperty("db.user");
+            String password = properties.getProperty("db.password");
+            ConnectionPool.Config config = new ConnectionPool.Config(
+                    (int) longProperty("db.pool.maxSize", 4),
+                    longProperty("db.pool.acquireTimeoutMs", 5_000),
+                    longProperty("db.pool.idleTimeoutMs", 60_000),
+                    (int) longProperty("db.pool.validationTimeoutSec", 2),
+                    (int) longProperty("db.pool.statementCacheSize", 16)
+            );
+            SchemaInitializer schema = new SchemaInitializer(properties);
+            pool = new ConnectionPool(url, user, password, config, schema::applyPragmas);
+            try (Connection connection = pool.borrow()) {
+                SchemaInitializer.migrate(connection);
+            } catch (SQLException | RepositoryException e) {
+                pool.close();
+                pool = null;
+                throw new RepositoryException("Initialisation de la base impossible");
             }
+            ConnectionPool created = pool;
+            Metrics.gauge("db_pool_in_use", () -> created.stats().inUse());
+            Metrics.gauge("db_pool_timeouts", () -> created.stats().timeouts());
+            System.out.println("Connection pool created.");
         }
-        return connection;
+        return pool;
     }
 
     /**
-     * Ferme la connexion à la base de données si elle est ouverte.
+     * Emprunte une connexion JDBC au pool. L'appelant doit la fermer pour la rendre.
      *
-     * @throws RepositoryException en cas d'échec
+     * @return connexion à la base de données
+     * @throws RepositoryException si la connexion échoue
      */
+    public static Connection getConnection() {
+        return getPool().borrow();
+    }
 
-    public static void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Connection closed.");
-            }
-        } catch (SQLException ex) {
-            throw new RepositoryException("Failed to close connection");
+    /**
+     * Ferme le pool de connexions s'il a été créé.
+     */
+
+    public static synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            Metrics.removeGauge("db_pool_in_use");
+            Metrics.removeGauge("db_pool_timeouts");
+            System.out.println("Connection pool closed.");
         }
     }
 }
@@ -0,0 +1,384 @@
+package be.esi.prj.model.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de connexions JDBC borné.
+ * Chaque connexion empruntée doit être fermée par l'appelant : {@code close()} la rend au pool
+ * au lieu de fermer la connexion physique, ce qui permet l'usage en try-with-resources.
+ * Les connexions sont validées avant d'être prêtées et fermées après une période d'inactivité.
+ * Chaque connexion physique garde en cache ses requêtes préparées par {@code prepareStatement(String)} :
+ * fermer une requête en cache la remet à disposition au lieu de la finaliser.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Paramètres du pool.
+     *
+     * @param maxSize                  nombre maximal de connexions ouvertes simultanément
+     * @param acquireTimeoutMillis     attente maximale pour obtenir une connexion
+     * @param idleTimeoutMillis        durée d'inactivité après laquelle une connexion est fermée
+     * @param validationTimeoutSeconds délai accordé à {@link Connection#isValid(int)}
+     * @param statementCacheSize       requêtes préparées gardées par connexion (0 pour désactiver)
+     */
+    public record Config(int maxSize, long acquireTimeoutMillis, long idleTimeoutMillis, int validationTimeoutSeconds,
+                         int statementCacheSize) {
+        public Config {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("La taille du pool doit être positive");
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("La taille du cache de requêtes ne peut pas être négative");
+            }
+        }
+    }
+
+    /**
+     * Instantané des métriques du pool.
+     *
+     * @param maxSize        taille maximale
+     * @param idle           connexions disponibles
+     * @param inUse          connexions prêtées
+     * @param acquired       emprunts réussis depuis la création
+     * @param timeouts       emprunts ayant échoué faute de connexion libre
+     * @param created        connexions physiques ouvertes
+     * @param evicted        connexions fermées pour inactivité ou invalidité
+     * @param meanWaitMillis attente moyenne d'un emprunt
+     * @param maxWaitMillis  attente maximale observée
+     * @param statementHits  requêtes préparées servies depuis le cache
+     * @param statementMisses requêtes préparées compilées
+     */
+    public record Stats(int maxSize, int idle, int inUse, long acquired, long timeouts, long created,
+                        long evicted, double meanWaitMillis, double maxWaitMillis,
+                        long statementHits, long statementMisses) {
+    }
+
+    /**
+     * Action exécutée sur chaque connexion physique juste après son ouverture (pragmas, etc.).
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Connexion physique et son cache de requêtes préparées.
+     * N'est utilisée que par un seul emprunteur à la fois.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        private long idleSince;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private PreparedStatement prepare(String sql) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached != null && !cached.inUse) {
+                statementHits.increment();
+                return cached.lend();
+            }
+            statementMisses.increment();
+            if (cached != null) {
+                // déjà ouverte par le même emprunteur : requête ordinaire, non mise en cache
+                return physical.prepareStatement(sql);
+            }
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statements.put(sql, cached);
+            trimStatements();
+            return cached.lend();
+        }
+
+        private void trimStatements() {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > config.statementCacheSize() && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (!eldest.inUse) {
+                    it.remove();
+                    eldest.closeQuietly();
+                }
+            }
+        }
+
+        private void closeQuietly() {
+            statements.values().forEach(CachedStatement::closeQuietly);
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // connexion déjà inutilisable
+            }
+        }
+    }
+
+    /**
+     * Requête préparée réutilisable : sa fermeture par l'appelant efface les paramètres
+     * et la rend disponible pour le prochain {@code prepareStatement} du même SQL.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        private final PreparedStatement physical;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+
+        private CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        private PreparedStatement lend() {
+            inUse = true;
+            return proxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (inUse) {
+                        inUse = false;
+                        physical.clearParameters();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse || physical.isClosed();
+                }
+                default -> {
+                    return invokeOn(physical, method, args);
+                }
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // requête déjà finalisée
+            }
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+    private final Initializer initializer;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        this(url, user, password, config, connection -> { });
+    }
+
+    public ConnectionPool(String url, String user, String password, Config config, Initializer initializer) {
+        this.url = Objects.requireNonNull(url, "URL requise");
+        this.user = user;
+        this.password = password;
+        this.config = Objects.requireNonNull(config, "Configuration requise");
+        this.initializer = Objects.requireNonNull(initializer, "Initialisation requise");
+        this.permits = new Semaphore(config.maxSize(), true);
+    }
+
+    /**
+     * Emprunte une connexion au pool, en attendant au plus {@code acquireTimeoutMillis}.
+     *
+     * @return connexion à fermer après usage pour la rendre au pool
+     * @throws RepositoryException si aucune connexion n'est disponible à temps
+     */
+    public Connection borrow() {
+        if (closed) {
+            throw new RepositoryException("Pool de connexions fermé");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.acquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new RepositoryException("Aucune connexion disponible");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Attente de connexion interrompue");
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulate(waited);
+        acquired.increment();
+
+        try {
+            return wrap(takeIdleOrOpen());
+        } catch (SQLException e) {
+            permits.release();
+            throw new RepositoryException("Connection failed");
+        }
+    }
+
+    private PooledConnection takeIdleOrOpen() throws SQLException {
+        PooledConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            if (isExpired(candidate, System.nanoTime())
+                    || !candidate.physical.isValid(config.validationTimeoutSeconds())) {
+                discard(candidate);
+                continue;
+            }
+            return candidate;
+        }
+        Connection physical = DriverManager.getConnection(url, user, password);
+        try {
+            initializer.initialize(physical);
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            Connection physical = pooled.physical;
+            if (closed || physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            pooled.idleSince = System.nanoTime();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+        evictIdle();
+    }
+
+    /**
+     * Ferme les connexions inactives depuis plus de {@code idleTimeoutMillis}.
+     * Les plus anciennes se trouvent en fin de file.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection candidate = it.next();
+            if (!isExpired(candidate, now)) {
+                break;
+            }
+            if (idle.removeLastOccurrence(candidate)) {
+                discard(candidate);
+            }
+        }
+    }
+
+    private boolean isExpired(PooledConnection candidate, long now) {
+        return now - candidate.idleSince > TimeUnit.MILLISECONDS.toNanos(config.idleTimeoutMillis());
+    }
+
+    private void discard(PooledConnection pooled) {
+        evicted.increment();
+        pooled.closeQuietly();
+    }
+
+    private Connection wrap(PooledConnection pooled) {
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> handle(pooled, released, method, args);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private Object handle(PooledConnection pooled, AtomicBoolean released, Method method, Object[] args)
+            throws Throwable {
+        switch (method.getName()) {
+            case "close" -> {
+                if (released.compareAndSet(false, true)) {
+                    release(pooled);
+                }
+                return null;
+            }
+            case "isClosed" -> {
+                return released.get() || pooled.physical.isClosed();
+            }
+            default -> {
+                if (released.get()) {
+                    throw new SQLException("Connexion déjà rendue au pool");
+                }
+                if (config.statementCacheSize() > 0
+                        && method.getName().equals("prepareStatement") && method.getParameterCount() == 1) {
+                    return pooled.prepare((String) args[0]);
+                }
+                return invokeOn(pooled.physical, method, args);
+            }
+        }
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public Stats stats() {
+        long count = acquired.sum();
+        return new Stats(
+                config.maxSize(),
+                idle.size(),
+                config.maxSize() - permits.availablePermits(),
+                count,
+                timeouts.sum(),
+                created.sum(),
+                evicted.sum(),
+                count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count,
+                maxWaitNanos.get() / 1e6,
+                statementHits.sum(),
+                statementMisses.sum()
+        );
+    }
+
+    /**
+     * Ferme toutes les connexions inactives ; les connexions prêtées seront fermées à leur retour.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            discard(candidate);
+        }
+    }
+}
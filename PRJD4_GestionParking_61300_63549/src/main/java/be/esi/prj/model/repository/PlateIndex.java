@@ -0,0 +1,194 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.PlateNormalizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index des plaques présentes pour la recherche approximative (BK-tree).
+ * <p>
+ * Les nœuds sont les clés canoniques ({@link PlateNormalizer#canonical}) et l'arbre est organisé selon
+ * la distance d'édition entre clés : une recherche à distance {@code d} n'explore que les branches
+ * compatibles, quelques dizaines de comparaisons pour un parking entier. Plusieurs plaques peuvent
+ * partager une clé (1-ABC-123 et 1-A8C-123) ; elles sont alors départagées par leur distance exacte.
+ * <p>
+ * Une plaque retirée laisse son nœud vide dans l'arbre ; l'arbre est reconstruit quand les nœuds
+ * vides deviennent majoritaires. Les méthodes sont synchronisées.
+ */
+class PlateIndex {
+
+    private static final class Node {
+        final String key;
+        final Set<String> plates = new LinkedHashSet<>(2);
+        final Map<Integer, Node> children = new HashMap<>(4);
+
+        Node(String key) {
+            this.key = key;
+        }
+    }
+
+    private Node root;
+    private int nodes;
+    private int emptyNodes;
+    private int size;
+
+    /**
+     * @param plateNumber plaque telle qu'enregistrée
+     */
+    synchronized void add(String plateNumber) {
+        String key = PlateNormalizer.canonical(plateNumber);
+        if (key.isEmpty()) {
+            return;
+        }
+        if (root == null) {
+            root = newNode(key, plateNumber);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(key, node.key);
+            if (distance == 0) {
+                boolean wasEmpty = node.plates.isEmpty();
+                if (node.plates.add(plateNumber)) {
+                    size++;
+                    if (wasEmpty) {
+                        emptyNodes--;
+                    }
+                }
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, newNode(key, plateNumber));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    private Node newNode(String key, String plateNumber) {
+        Node node = new Node(key);
+        node.plates.add(plateNumber);
+        nodes++;
+        size++;
+        return node;
+    }
+
+    /**
+     * @param plateNumber plaque telle qu'enregistrée
+     */
+    synchronized void remove(String plateNumber) {
+        String key = PlateNormalizer.canonical(plateNumber);
+        Node node = root;
+        while (node != null) {
+            int distance = distance(key, node.key);
+            if (distance == 0) {
+                if (node.plates.remove(plateNumber)) {
+                    size--;
+                    if (node.plates.isEmpty()) {
+                        emptyNodes++;
+                    }
+                    if (emptyNodes * 2 > nodes) {
+                        rebuild();
+                    }
+                }
+                return;
+            }
+            node = node.children.get(distance);
+        }
+    }
+
+    private void rebuild() {
+        List<String> plates = new ArrayList<>(size);
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            plates.addAll(node.plates);
+            node.children.values().forEach(pending::push);
+        }
+        clear();
+        plates.forEach(this::add);
+    }
+
+    synchronized void clear() {
+        root = null;
+        nodes = 0;
+        emptyNodes = 0;
+        size = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Recherche les plaques proches d'une lecture, les plus proches en premier.
+     *
+     * @param raw         texte lu (nettoyé par {@link PlateNormalizer})
+     * @param maxDistance éditions tolérées sur la clé canonique
+     * @param limit       nombre maximal de candidats
+     * @return candidats classés
+     */
+    synchronized List<PlateMatch> search(String raw, int maxDistance, int limit) {
+        String key = PlateNormalizer.canonical(raw);
+        if (root == null || key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String plate = PlateNormalizer.normalize(raw).replace("-", "");
+        List<PlateMatch> matches = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(key, node.key);
+            if (distance <= maxDistance) {
+                for (String candidate : node.plates) {
+                    String cleaned = PlateNormalizer.normalize(candidate).replace("-", "");
+                    matches.add(new PlateMatch(candidate, distance, distance(plate, cleaned)));
+                }
+            }
+            // inégalité triangulaire : seules les branches à distance [d - max, d + max] peuvent contenir un candidat
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        Collections.sort(matches);
+        return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : matches;
+    }
+
+    /** Distance de Levenshtein, sur deux lignes de la matrice. */
+    static int distance(String a, String b) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,21 @@
+package be.esi.prj.model.repository;
+
+/**
+ * Plaque présente proche d'une lecture OCR.
+ *
+ * @param plateNumber plaque enregistrée
+ * @param distance    éditions entre les clés canoniques (0 : seules des confusions O/0, I/1...)
+ * @param exact       éditions entre les plaques nettoyées, pour départager les candidats
+ */
+public record PlateMatch(String plateNumber, int distance, int exact) implements Comparable<PlateMatch> {
+
+    @Override
+    public int compareTo(PlateMatch other) {
+        int byDistance = Integer.compare(distance, other.distance);
+        if (byDistance != 0) {
+            return byDistance;
+        }
+        int byExact = Integer.compare(exact, other.exact);
+        return byExact != 0 ? byExact : plateNumber.compareTo(other.plateNumber);
+    }
+}
@@ -0,0 +1,204 @@
+package be.esi.prj.model.repository;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Prépare la base SQLite au démarrage : pragmas de performance appliqués à chaque connexion
+ * et création/mise à jour du schéma, versionné via {@code PRAGMA user_version}.
+ */
+public final class SchemaInitializer {
+
+    /**
+     * Scripts de migration ; l'élément d'indice {@code i} fait passer le schéma
+     * de la version {@code i} à la version {@code i + 1}.
+     */
+    private static final List<List<String>> MIGRATIONS = List.of(
+            List.of(
+                    """
+                    CREATE TABLE IF NOT EXISTS Vehicle (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        plateNumber TEXT NOT NULL,
+                        entryTime TEXT NOT NULL,
+                        exitTime TEXT
+                    )
+                    """,
+                    "CREATE INDEX IF NOT EXISTS idx_vehicle_plate ON Vehicle (plateNumber)",
+                    "CREATE INDEX IF NOT EXISTS idx_vehicle_exit ON Vehicle (exitTime)"
+            ),
+            List.of(
+                    // pagination par (entryTime, id) : l'id est implicitement inclus dans l'index
+                    "CREATE INDEX IF NOT EXISTS idx_vehicle_entry ON Vehicle (entryTime)"
+            ),
+            List.of(
+                    // dates TEXT 'yyyy-MM-dd HH:mm:ss' -> secondes depuis l'époque (INTEGER) ;
+                    // la table est reconstruite car l'affinité TEXT reconvertirait les entiers en texte
+                    """
+                    CREATE TABLE Vehicle_epoch (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        plateNumber TEXT NOT NULL,
+                        entryTime INTEGER NOT NULL,
+                        exitTime INTEGER
+                    )
+                    """,
+                    """
+                    INSERT INTO Vehicle_epoch (id, plateNumber, entryTime, exitTime)
+                    SELECT id, plateNumber,
+                           CAST(strftime('%s', entryTime) AS INTEGER),
+                           CAST(strftime('%s', exitTime) AS INTEGER)
+                    FROM Vehicle
+                    """,
+                    // conserve le compteur AUTOINCREMENT : les identifiants supprimés ne sont pas réattribués
+                    "DELETE FROM sqlite_sequence WHERE name = 'Vehicle_epoch'",
+                    """
+                    INSERT INTO sqlite_sequence (name, seq)
+                    SELECT 'Vehicle_epoch', MAX(seq) FROM sqlite_sequence WHERE name = 'Vehicle'
+                    HAVING MAX(seq) IS NOT NULL
+                    """,
+                    "DROP TABLE Vehicle",
+                    "ALTER TABLE Vehicle_epoch RENAME TO Vehicle",
+                    "CREATE INDEX idx_vehicle_plate ON Vehicle (plateNumber)",
+                    "CREATE INDEX idx_vehicle_exit ON Vehicle (exitTime)",
+                    "CREATE INDEX idx_vehicle_entry ON Vehicle (entryTime)"
+            ),
+            List.of(
+                    // recherche par plaque insensible à la casse (VehicleDao.findByPlate)
+                    "DROP INDEX IF EXISTS idx_vehicle_plate",
+                    "CREATE INDEX idx_vehicle_plate ON Vehicle (plateNumber COLLATE NOCASE)"
+            ),
+            List.of(
+                    // séjours terminés : alimentée uniquement par VehicleDao.archive, jamais modifiée ensuite ;
+                    // l'identifiant reste celui attribué par Vehicle (AUTOINCREMENT, jamais réutilisé)
+                    """
+                    CREATE TABLE VehicleArchive (
+                        id INTEGER PRIMARY KEY,
+                        plateNumber TEXT NOT NULL,
+                        entryTime INTEGER NOT NULL,
+                        exitTime INTEGER NOT NULL,
+                        archivedAt INTEGER NOT NULL
+                    )
+                    """,
+                    "CREATE INDEX idx_archive_plate ON VehicleArchive (plateNumber)",
+                    "CREATE INDEX idx_archive_entry ON VehicleArchive (entryTime)",
+                    """
+                    CREATE VIEW VehicleHistory AS
+                    SELECT id, plateNumber, entryTime, exitTime FROM Vehicle
+                    UNION ALL
+                    SELECT id, plateNumber, entryTime, exitTime FROM VehicleArchive
+                    """
+            )
+    );
+
+    public static final int SCHEMA_VERSION = MIGRATIONS.size();
+
+    private static final Set<String> JOURNAL_MODES = Set.of("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+    private static final Set<String> SYNCHRONOUS_MODES = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+    private static final Set<String> TEMP_STORES = Set.of("DEFAULT", "FILE", "MEMORY");
+
+    private final String journalMode;
+    private final String synchronous;
+    private final long cacheSize;
+    private final long mmapSize;
+    private final String tempStore;
+    private final long busyTimeoutMillis;
+
+    /**
+     * Lit les pragmas dans les propriétés {@code db.sqlite.*}, avec des valeurs par défaut
+     * adaptées à un accès concurrent (WAL, synchronous NORMAL).
+     *
+     * @param properties propriétés de database.properties
+     * @throws RepositoryException si une valeur n'est pas reconnue
+     */
+    public SchemaInitializer(Properties properties) {
+        this.journalMode = choice(properties, "db.sqlite.journalMode", "WAL", JOURNAL_MODES);
+        this.synchronous = choice(properties, "db.sqlite.synchronous", "NORMAL", SYNCHRONOUS_MODES);
+        this.cacheSize = number(properties, "db.sqlite.cacheSize", -16_000);
+        this.mmapSize = number(properties, "db.sqlite.mmapSize", 0);
+        this.tempStore = choice(properties, "db.sqlite.tempStore", "MEMORY", TEMP_STORES);
+        this.busyTimeoutMillis = number(properties, "db.sqlite.busyTimeoutMs", 5_000);
+    }
+
+    private static String choice(Properties properties, String key, String defaultValue, Set<String> allowed) {
+        String value = properties.getProperty(key, defaultValue).trim().toUpperCase(Locale.ROOT);
+        if (!allowed.contains(value)) {
+            throw new RepositoryException("Propriété invalide : " + key);
+        }
+        return value;
+    }
+
+    private static long number(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RepositoryException("Propriété invalide : " + key);
+        }
+    }
+
+    /**
+     * Applique les pragmas propres à une connexion. Appelé par le pool à chaque ouverture.
+     *
+     * @param connection connexion physique nouvellement ouverte
+     * @throws SQLException si un pragma est refusé
+     */
+    public void applyPragmas(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    /**
+     * Amène le schéma à {@link #SCHEMA_VERSION} en appliquant les migrations manquantes,
+     * chacune dans sa propre transaction.
+     *
+     * @param connection connexion à utiliser
+     * @throws RepositoryException si une migration échoue
+     */
+    public static void migrate(Connection connection) {
+        try (Statement stmt = connection.createStatement()) {
+            int version = currentVersion(stmt);
+            if (version > SCHEMA_VERSION) {
+                throw new RepositoryException("Schéma plus récent que l'application : v" + version);
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (int i = version; i < SCHEMA_VERSION; i++) {
+                    for (String sql : MIGRATIONS.get(i)) {
+                        stmt.execute(sql);
+                    }
+                    stmt.execute("PRAGMA user_version = " + (i + 1));
+                    connection.commit();
+                    System.out.println("Schéma migré en version " + (i + 1));
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Migration du schéma impossible");
+        }
+    }
+
+    private static int currentVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache des véhicules présents, indexé par identifiant et par plaque normalisée.
+ * La politique d'éviction est configurable :
+ * <ul>
+ *     <li>{@link Policy#UNBOUNDED} : tout est gardé, le cache reflète alors toute la table ;</li>
+ *     <li>{@link Policy#LRU} : au plus {@code maxSize} véhicules, le moins récemment lu est évincé ;</li>
+ *     <li>{@link Policy#TTL} : une entrée expire {@code ttlMillis} après son chargement
+ *     (et {@code maxSize} reste appliqué s'il est positif).</li>
+ * </ul>
+ * Les lectures absentes sont chargées par l'appelant ({@link #getOrLoad}, {@link #getOrLoadByPlate})
+ * et les absences confirmées sont mémorisées pendant {@code negativeTtlMillis}, pour ne pas relire
+ * la base à chaque recherche d'un identifiant ou d'une plaque inconnue.
+ */
+public class VehicleCache {
+
+    public enum Policy {
+        UNBOUNDED, LRU, TTL
+    }
+
+    /**
+     * Paramètres du cache.
+     *
+     * @param policy            politique d'éviction
+     * @param maxSize           nombre maximal de véhicules (LRU, et TTL s'il est positif)
+     * @param ttlMillis         durée de vie d'une entrée (TTL)
+     * @param negativeTtlMillis durée de mémorisation d'une absence (0 pour désactiver)
+     */
+    public record Config(Policy policy, int maxSize, long ttlMillis, long negativeTtlMillis) {
+        public Config {
+            Objects.requireNonNull(policy, "Politique de cache requise");
+            if (policy == Policy.LRU && maxSize < 1) {
+                throw new IllegalArgumentException("La taille du cache LRU doit être positive");
+            }
+            if (policy == Policy.TTL && ttlMillis < 1) {
+                throw new IllegalArgumentException("La durée de vie du cache TTL doit être positive");
+            }
+            if (negativeTtlMillis < 0) {
+                throw new IllegalArgumentException("La durée des absences mémorisées ne peut pas être négative");
+            }
+        }
+
+        public static Config unbounded() {
+            return new Config(Policy.UNBOUNDED, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Instantané des métriques du cache.
+     *
+     * @param policy       politique d'éviction
+     * @param size         véhicules en cache
+     * @param hits         lectures servies par le cache
+     * @param misses       lectures transmises à la base
+     * @param negativeHits lectures servies par une absence mémorisée
+     * @param evictions    entrées évincées pour respecter la taille maximale
+     * @param expirations  entrées expirées (TTL)
+     */
+    public record Stats(Policy policy, int size, long hits, long misses, long negativeHits, long evictions,
+                        long expirations) {
+
+        /**
+         * @return part des lectures servies sans accès à la base
+         */
+        public double hitRate() {
+            long total = hits + negativeHits + misses;
+            return total == 0 ? 0 : (double) (hits + negativeHits) / total;
+        }
+    }
+
+    /** Nombre d'absences mémorisées au-delà duquel les expirées sont purgées. */
+    private static final int MAX_ABSENT = 10_000;
+
+    private record Entry(VehicleDto vehicle, long loadedAt) {
+    }
+
+    private final Config config;
+    private final LongSupplier clock;
+    /** Ordre d'accès : le premier élément est le moins récemment utilisé. */
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> plateIndex = new HashMap<>();
+    private final Map<Integer, Long> absentIds = new HashMap<>();
+    private final Map<String, Long> absentPlates = new HashMap<>();
+    /** Incrémenté à chaque écriture : un chargement concurrent d'une écriture n'est pas mis en cache. */
+    private long version;
+
+    private long hits;
+    private long misses;
+    private long negativeHits;
+    private long evictions;
+    private long expirations;
+
+    public VehicleCache(Config config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    VehicleCache(Config config, LongSupplier clock) {
+        this.config = Objects.requireNonNull(config, "Configuration requise");
+        this.clock = clock;
+    }
+
+    /**
+     * @return {@code true} si le cache garde tous les véhicules qui y sont placés
+     */
+    public boolean isComplete() {
+        return config.policy() == Policy.UNBOUNDED;
+    }
+
+    /**
+     * Lit un véhicule par identifiant, en le chargeant avec {@code loader} s'il n'est pas en cache.
+     * Le chargement a lieu hors du verrou du cache.
+     *
+     * @param id     identifiant du véhicule
+     * @param loader lecture en base en cas d'absence
+     * @return le véhicule, ou {@code Optional.empty()} s'il n'existe pas
+     */
+    public Optional<VehicleDto> getOrLoad(int id, IntFunction<Optional<VehicleDto>> loader) {
+        long seen;
+        synchronized (this) {
+            VehicleDto cached = lookup(id);
+            if (cached != null) {
+                hits++;
+                return Optional.of(cached);
+            }
+            if (isAbsent(absentIds, id)) {
+                negativeHits++;
+                return Optional.empty();
+            }
+            misses++;
+            seen = version;
+        }
+        Optional<VehicleDto> loaded = loader.apply(id);
+        synchronized (this) {
+            if (seen == version) {
+                store(loaded, id, null);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Lit un véhicule par plaque normalisée, en le chargeant avec {@code loader} s'il n'est pas en cache.
+     *
+     * @param key    plaque normalisée
+     * @param loader lecture en base en cas d'absence
+     * @return le véhicule, ou {@code Optional.empty()} s'il n'existe pas
+     */
+    public Optional<VehicleDto> getOrLoadByPlate(String key, Function<String, Optional<VehicleDto>> loader) {
+        long seen;
+        synchronized (this) {
+            VehicleDto cached = getByPlate(key);
+            if (cached != null) {
+                hits++;
+                return Optional.of(cached);
+            }
+            if (isAbsent(absentPlates, key)) {
+                negativeHits++;
+                return Optional.empty();
+            }
+            misses++;
+            seen = version;
+        }
+        Optional<VehicleDto> loaded = loader.apply(key);
+        synchronized (this) {
+            if (seen == version) {
+                store(loaded, null, key);
+            }
+        }
+        return loaded;
+    }
+
+    private void store(Optional<VehicleDto> loaded, Integer id, String key) {
+        if (loaded.isPresent()) {
+            put(loaded.get());
+            return;
+        }
+        if (config.negativeTtlMillis() > 0) {
+            if (id != null) {
+                remember(absentIds, id);
+            }
+            if (key != null) {
+                remember(absentPlates, key);
+            }
+        }
+    }
+
+    /** Mémorise une absence ; au-delà de {@link #MAX_ABSENT} entrées, les absences expirées sont purgées. */
+    private <K> void remember(Map<K, Long> absent, K key) {
+        long now = clock.getAsLong();
+        if (absent.size() >= MAX_ABSENT) {
+            absent.values().removeIf(expiresAt -> expiresAt <= now);
+            if (absent.size() >= MAX_ABSENT) {
+                absent.clear();
+            }
+        }
+        absent.put(key, now + config.negativeTtlMillis());
+    }
+
+    private <K> boolean isAbsent(Map<K, Long> absent, K key) {
+        Long expiresAt = absent.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= clock.getAsLong()) {
+            absent.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lit un véhicule en cache sans le charger ni compter la lecture.
+     *
+     * @return le véhicule, ou {@code null} s'il n'est pas en cache
+     */
+    public synchronized VehicleDto get(int id) {
+        return lookup(id);
+    }
+
+    /**
+     * Lit le véhicule en cache pour une plaque normalisée, sans le charger ni compter la lecture.
+     *
+     * @return le véhicule, ou {@code null} s'il n'est pas en cache
+     */
+    public synchronized VehicleDto getByPlate(String key) {
+        Integer id = key == null ? null : plateIndex.get(key);
+        return id == null ? null : lookup(id);
+    }
+
+    /**
+     * Lit le véhicule d'une plaque normalisée dans un cache complet ({@link #isComplete()}), en comptant
+     * la lecture : une plaque absente du cache est absente du parking, comptée comme absence servie
+     * par le cache puisqu'aucune lecture en base n'est nécessaire.
+     *
+     * @return le véhicule, ou {@code null} si aucun n'est présent avec cette plaque
+     */
+    public synchronized VehicleDto findByPlate(String key) {
+        VehicleDto cached = getByPlate(key);
+        if (cached != null) {
+            hits++;
+        } else {
+            negativeHits++;
+        }
+        return cached;
+    }
+
+    private VehicleDto lookup(int id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (expired(entry)) {
+            unlink(id, entry);
+            expirations++;
+            return null;
+        }
+        return entry.vehicle();
+    }
+
+    private boolean expired(Entry entry) {
+        return config.policy() == Policy.TTL && clock.getAsLong() - entry.loadedAt() >= config.ttlMillis();
+    }
+
+    /**
+     * Place un véhicule en cache et oublie les absences mémorisées pour son identifiant et sa plaque.
+     * La version remplacée est rendue même si elle a expiré, pour que l'appelant retire son ancienne plaque.
+     *
+     * @return la version précédente en cache, ou {@code null}
+     */
+    public synchronized VehicleDto put(VehicleDto vehicle) {
+        version++;
+        String key = VehicleRepository.normalizePlate(vehicle.plateNumber());
+        absentIds.remove(vehicle.id());
+        if (key != null) {
+            absentPlates.remove(key);
+        }
+        Entry previous = entries.put(vehicle.id(), new Entry(vehicle, clock.getAsLong()));
+        if (previous != null) {
+            plateIndex.remove(VehicleRepository.normalizePlate(previous.vehicle().plateNumber()), vehicle.id());
+        }
+        if (key != null) {
+            plateIndex.put(key, vehicle.id());
+        }
+        evictOverflow();
+        return previous == null ? null : previous.vehicle();
+    }
+
+    private void evictOverflow() {
+        int maxSize = config.policy() == Policy.UNBOUNDED ? 0 : config.maxSize();
+        if (maxSize < 1) {
+            return;
+        }
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            Map.Entry<Integer, Entry> entry = eldest.next();
+            eldest.remove();
+            plateIndex.remove(VehicleRepository.normalizePlate(entry.getValue().vehicle().plateNumber()), entry.getKey());
+            evictions++;
+        }
+    }
+
+    /**
+     * Retire un véhicule du cache ; son identifiant est mémorisé comme absent.
+     *
+     * @return la version retirée, ou {@code null} s'il n'était pas en cache
+     */
+    public synchronized VehicleDto remove(int id) {
+        version++;
+        Entry previous = entries.get(id);
+        if (previous != null) {
+            unlink(id, previous);
+        }
+        if (config.negativeTtlMillis() > 0) {
+            remember(absentIds, id);
+        }
+        return previous == null ? null : previous.vehicle();
+    }
+
+    private void unlink(int id, Entry entry) {
+        entries.remove(id);
+        plateIndex.remove(VehicleRepository.normalizePlate(entry.vehicle().plateNumber()), id);
+    }
+
+    /**
+     * @return copie des véhicules en cache (entrées expirées exclues)
+     */
+    public synchronized List<VehicleDto> values() {
+        List<VehicleDto> vehicles = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (!expired(entry)) {
+                vehicles.add(entry.vehicle());
+            }
+        }
+        return vehicles;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(config.policy(), entries.size(), hits, misses, negativeHits, evictions, expirations);
+    }
+}
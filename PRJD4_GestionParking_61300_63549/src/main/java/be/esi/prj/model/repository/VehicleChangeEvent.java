@@ -0,0 +1,24 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+
+/**
+ * Modification d'un véhicule dans le repository, transmise aux {@link VehicleChangeListener}.
+ *
+ * @param type     nature de la modification
+ * @param previous état avant modification ({@code null} pour un ajout)
+ * @param current  état après modification ({@code null} pour une suppression)
+ */
+public record VehicleChangeEvent(Type type, VehicleDto previous, VehicleDto current) {
+
+    public enum Type {
+        ADDED, UPDATED, REMOVED
+    }
+
+    /**
+     * @return identifiant du véhicule concerné
+     */
+    public int id() {
+        return current != null ? current.id() : previous.id();
+    }
+}
@@ -0,0 +1,10 @@
+package be.esi.prj.model.repository;
+
+/**
+ * Écouteur des modifications du {@link VehicleRepository}.
+ * Appelé sur le thread qui a effectué la modification, après mise à jour du cache.
+ */
+@FunctionalInterface
+public interface VehicleChangeListener {
+    void onVehicleChanged(VehicleChangeEvent event);
+}
@@ -4,210 +4,565 @@ import be.esi.prj.model.dto.VehicleDto;
 import be.esi.prj.model.*;
 
 import java.sql.*;
-import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cette classe gère toutes les opérations SQL bas niveau (CRUD) liées aux véhicules.
+ * Chaque opération emprunte sa propre connexion au pool, ce qui permet aux lectures
+ * de s'exécuter en parallèle depuis plusieurs threads.
+ * Les dates sont stockées en secondes depuis l'époque (colonnes INTEGER), l'heure locale
+ * étant lue comme de l'UTC : aucune chaîne n'est produite ni analysée à la lecture ou l'écriture.
+ * La table Vehicle ne contient que les véhicules présents ; les sorties sont déplacées dans
+ * VehicleArchive et la vue VehicleHistory réunit les deux.
+ * Chaque opération mesure sa durée, connexion comprise, dans {@code db_statement_seconds}.
  */
 
 public class VehicleDao {
-    private final Connection connection;
+    private static final Metrics.Histogram FIND_BY_ID = statement("findById");
+    private static final Metrics.Histogram FIND_ALL = statement("findAll");
+    private static final Metrics.Histogram ID_BOUNDS = statement("idBounds");
+    private static final Metrics.Histogram FIND_BY_ID_RANGE = statement("findByIdRange");
+    private static final Metrics.Histogram FIND_BY_PLATE = statement("findByPlate");
+    private static final Metrics.Histogram LOAD_STAYS = statement("loadStays");
+    private static final Metrics.Histogram FIND_PAGE = statement("findPage");
+    private static final Metrics.Histogram SAVE = statement("save");
+    private static final Metrics.Histogram APPLY_BATCH = statement("applyBatch");
+    private static final Metrics.Histogram LAST_GENERATED_ID = statement("lastGeneratedId");
+    private static final Metrics.Histogram DELETE = statement("delete");
+    /** Suppressions d'un identifiant déjà absent de la table. */
+    private static final Metrics.Counter DELETE_MISSING = Metrics.counter("db_delete_missing_total");
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final ConnectionPool pool;
 
-    public VehicleDao(Connection connection) {
-        this.connection = Objects.requireNonNull(connection, "Connexion requise");
+    public VehicleDao(ConnectionPool pool) {
+        this.pool = Objects.requireNonNull(pool, "Pool de connexions requis");
     }
 
-    public Optional<VehicleDto> findById(int id) {
-        String sql = """
-            SELECT 
-                id, plateNumber, entryTime, exitTime
-            FROM 
-                Vehicle 
-            WHERE 
-                id = ?
-            """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    int vehicleId = rs.getInt("id");
-                    String plateNumber = rs.getString("plateNumber");
+    /**
+     * Convertit la ligne courante ; les colonnes doivent être sélectionnées dans l'ordre
+     * id, plateNumber, entryTime, exitTime.
+     */
+    private static VehicleDto toDto(ResultSet rs) throws SQLException {
+        int id = rs.getInt(1);
+        String plateNumber = rs.getString(2);
+        LocalDateTime entryTime = fromEpoch(rs.getLong(3));
+        long exitSeconds = rs.getLong(4);
+        LocalDateTime exitTime = rs.wasNull() ? null : fromEpoch(exitSeconds);
+        return new VehicleDto(id, plateNumber, entryTime, exitTime);
+    }
 
-                    String entryTimeStr = rs.getString("entryTime");
-                    String exitTimeStr = rs.getString("exitTime");
+    static LocalDateTime fromEpoch(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
 
-                    LocalDateTime entryTime = LocalDateTime.parse(entryTimeStr, DATE_TIME_FORMATTER);
-                    LocalDateTime exitTime = LocalDateTime.parse(exitTimeStr, DATE_TIME_FORMATTER);
+    static long toEpoch(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC);
+    }
 
-                    VehicleDto vehicle = new VehicleDto(vehicleId, plateNumber, entryTime, exitTime);
-                    return Optional.of(vehicle);
-                }
-            }
+    private static Metrics.Histogram statement(String name) {
+        return Metrics.histogram("db_statement_seconds", "statement", name);
+    }
+
+    /** Corps d'une opération SQL, mesuré par {@link #timed}. */
+    @FunctionalInterface
+    private interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
+
+    /**
+     * Exécute une opération en mesurant sa durée, connexion comprise.
+     *
+     * @param statement histogramme de l'opération
+     * @param failure   message de la {@link RepositoryException} levée si l'opération échoue
+     */
+    private static <T> T timed(Metrics.Histogram statement, String failure, SqlSupplier<T> operation) {
+        long start = System.nanoTime();
+        try {
+            return operation.get();
         } catch (SQLException e) {
-            throw new RepositoryException("Sélection impossible");
+            throw new RepositoryException(failure);
+        } finally {
+            statement.recordSince(start);
         }
-        return Optional.empty();
+    }
+
+    public Optional<VehicleDto> findById(int id) {
+        return timed(FIND_BY_ID, "Sélection impossible", () -> {
+            String sql = """
+                SELECT 
+                    id, plateNumber, entryTime, exitTime
+                FROM 
+                    Vehicle 
+                WHERE 
+                    id = ?
+                """;
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(toDto(rs));
+                    }
+                }
+            }
+            return Optional.empty();
+        });
     }
 
     public List<VehicleDto> findAll() {
-        List<VehicleDto> vehicles = new ArrayList<>();
-        String sql = "SELECT id, plateNumber, entryTime, exitTime FROM Vehicle";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String plateNumber = rs.getString("plateNumber");
-                String entryTimeStr = rs.getString("entryTime");
-                String exitTimeStr = rs.getString("exitTime");
-
-                LocalDateTime entryTime = null;
-                LocalDateTime exitTime = null;
-
-                if (entryTimeStr != null && !entryTimeStr.isEmpty()) {
-                    entryTime = LocalDateTime.parse(entryTimeStr, DATE_TIME_FORMATTER);
+        return timed(FIND_ALL, "Sélection impossible", () -> {
+            List<VehicleDto> vehicles = new ArrayList<>();
+            String sql = "SELECT id, plateNumber, entryTime, exitTime FROM Vehicle";
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    vehicles.add(toDto(rs));
+                }
+            }
+            return vehicles;
+        });
+    }
+
+    /**
+     * Retourne le plus petit et le plus grand identifiant présents ({@code [1, 0]} si la table est vide).
+     *
+     * @return bornes {@code [min, max]} des identifiants
+     */
+    public long[] idBounds() {
+        return timed(ID_BOUNDS, "Sélection impossible", () -> {
+            String sql = "SELECT MIN(id), MAX(id) FROM Vehicle";
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return new long[]{1, 0};
+                }
+                long min = rs.getLong(1);
+                if (rs.wasNull()) {
+                    return new long[]{1, 0};
                 }
+                return new long[]{min, rs.getLong(2)};
+            }
+        });
+    }
 
-                if (exitTimeStr != null && !exitTimeStr.isEmpty()) {
-                    exitTime = LocalDateTime.parse(exitTimeStr, DATE_TIME_FORMATTER);
+    /**
+     * Lit les véhicules dont l'identifiant est dans {@code [fromId, toId)}, par la clé primaire.
+     * La table ne contient que les véhicules présents, y compris ceux qui ont dépassé leur sortie prévue.
+     *
+     * @param fromId premier identifiant (inclus)
+     * @param toId   dernier identifiant (exclu)
+     * @return véhicules de la tranche
+     */
+    public List<VehicleDto> findByIdRange(int fromId, int toId) {
+        return timed(FIND_BY_ID_RANGE, "Sélection impossible", () -> {
+            String sql = "SELECT id, plateNumber, entryTime, exitTime FROM Vehicle WHERE id >= ? AND id < ?";
+            List<VehicleDto> vehicles = new ArrayList<>();
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setInt(1, fromId);
+                stmt.setInt(2, toId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        vehicles.add(toDto(rs));
+                    }
                 }
+            }
+            return vehicles;
+        });
+    }
 
-                VehicleDto vehicle = new VehicleDto(id, plateNumber, entryTime, exitTime);
-                vehicles.add(vehicle);
+    /**
+     * Recherche le dernier véhicule enregistré pour une plaque, sans tenir compte de la casse.
+     *
+     * @param plateNumber plaque recherchée
+     * @return véhicule le plus récent portant cette plaque
+     */
+    public Optional<VehicleDto> findByPlate(String plateNumber) {
+        return timed(FIND_BY_PLATE, "Sélection impossible", () -> {
+            String sql = """
+                SELECT id, plateNumber, entryTime, exitTime
+                FROM Vehicle
+                WHERE plateNumber = ? COLLATE NOCASE
+                ORDER BY id DESC
+                LIMIT 1
+                """;
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, plateNumber);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(toDto(rs));
+                    }
+                }
             }
+            return Optional.empty();
+        });
+    }
+
+
+    /**
+     * Parcourt toute la table sans la charger en mémoire : les lignes sont lues au fur et à mesure
+     * depuis un curseur ouvert. Le flux garde une connexion du pool et doit être fermé,
+     * de préférence en try-with-resources.
+     *
+     * @param fetchSize nombre de lignes lues par aller-retour du pilote
+     * @return flux des véhicules, par identifiant croissant
+     * @throws RepositoryException si la lecture échoue
+     */
+    public Stream<VehicleDto> streamAll(int fetchSize) {
+        return stream("Vehicle", fetchSize);
+    }
+
+    /**
+     * Comme {@link #streamAll(int)}, mais sur l'historique complet : véhicules présents et archivés.
+     *
+     * @param fetchSize nombre de lignes lues par aller-retour du pilote
+     * @return flux des véhicules, par identifiant croissant
+     * @throws RepositoryException si la lecture échoue
+     */
+    public Stream<VehicleDto> streamHistory(int fetchSize) {
+        return stream("VehicleHistory", fetchSize);
+    }
+
+    private Stream<VehicleDto> stream(String source, int fetchSize) {
+        String sql = "SELECT id, plateNumber, entryTime, exitTime FROM " + source + " ORDER BY id";
+        Connection connection = pool.borrow();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connection.prepareStatement(sql);
+            stmt.setFetchSize(fetchSize);
+            rs = stmt.executeQuery();
         } catch (SQLException e) {
+            closeAll(rs, stmt, connection);
             throw new RepositoryException("Sélection impossible");
         }
-        return vehicles;
+        ResultSet cursor = rs;
+        PreparedStatement statement = stmt;
+        Spliterator<VehicleDto> rows = new Spliterators.AbstractSpliterator<>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super VehicleDto> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(toDto(cursor));
+                    return true;
+                } catch (SQLException e) {
+                    throw new RepositoryException("Lecture impossible");
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> closeAll(cursor, statement, connection));
     }
 
+    /**
+     * Applique une action à chaque véhicule de la table, en lecture continue.
+     * Les ressources sont libérées même si l'action échoue.
+     *
+     * @param fetchSize nombre de lignes lues par aller-retour du pilote
+     * @param action    action appliquée à chaque ligne
+     */
+    public void forEach(int fetchSize, Consumer<? super VehicleDto> action) {
+        try (Stream<VehicleDto> vehicles = streamAll(fetchSize)) {
+            vehicles.forEach(action);
+        }
+    }
 
-    private int insert(VehicleDto vehicle) {
-        String sql = """
-        INSERT INTO 
-            Vehicle (plateNumber, entryTime, exitTime) 
-        VALUES 
-            (?, ?, ?)
-        """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, vehicle.plateNumber());
-
-
-            String entryTimeStr = vehicle.entryTime().format(DATE_TIME_FORMATTER);
-            stmt.setString(2, entryTimeStr);
+    /**
+     * Lit les séjours de l'historique entrés dans {@code [enteredFrom, enteredTo)} directement en colonnes,
+     * sans créer de véhicule par ligne, pour la tarification en masse.
+     * La sortie enregistrée sert aussi de départ réel (l'archive ne garde que le départ effectif) :
+     * aucun supplément de retard n'est recalculé. Un séjour sans sortie est compté jusqu'à {@code openUntil}.
+     *
+     * @param enteredFrom début de la période (inclus)
+     * @param enteredTo   fin de la période (exclue)
+     * @param openUntil   fin des séjours en cours
+     * @param fetchSize   nombre de lignes lues par aller-retour du pilote
+     * @return séjours, par entrée croissante
+     * @throws RepositoryException si la lecture échoue
+     */
+    public Stays loadStays(LocalDateTime enteredFrom, LocalDateTime enteredTo, LocalDateTime openUntil, int fetchSize) {
+        return timed(LOAD_STAYS, "Sélection impossible", () -> {
+            String sql = "SELECT entryTime, exitTime FROM VehicleHistory WHERE entryTime >= ? AND entryTime < ? ORDER BY entryTime";
+            long until = Stays.epochMinute(openUntil);
+            Stays.Builder stays = new Stays.Builder(fetchSize);
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setLong(1, toEpoch(enteredFrom));
+                stmt.setLong(2, toEpoch(enteredTo));
+                stmt.setFetchSize(fetchSize);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        long entry = Math.floorDiv(rs.getLong(1), 60);
+                        long exitSeconds = rs.getLong(2);
+                        long exit = rs.wasNull() ? until : Math.floorDiv(exitSeconds, 60);
+                        stays.add(entry, exit, exit);
+                    }
+                }
+            }
+            return stays.build();
+        });
+    }
 
+    private static void closeAll(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception ignored) {
+                // fermeture au mieux : les ressources suivantes doivent être libérées
+            }
+        }
+    }
 
-            if (vehicle.exitTime() != null) {
-                String exitTimeStr = vehicle.exitTime().format(DATE_TIME_FORMATTER);
-                stmt.setString(3, exitTimeStr); // Si exitTime n'est pas null, on le formate et l'ajoute
-            } else {
-                stmt.setNull(3, Types.TIMESTAMP); // Si exitTime est null, on insère un NULL en base
+    /**
+     * Lit une page de l'historique (véhicules présents et archivés) filtrée et triée par la base,
+     * par pagination sur clé.
+     *
+     * @param request filtres, tri et position de la page
+     * @return les lignes de la page et l'indication d'une page suivante
+     * @throws RepositoryException si la lecture échoue
+     */
+    public VehiclePage findPage(VehiclePageRequest request) {
+        return timed(FIND_PAGE, "Sélection impossible", () -> {
+            StringBuilder sql = new StringBuilder("SELECT id, plateNumber, entryTime, exitTime FROM VehicleHistory WHERE 1 = 1");
+            List<Object> params = new ArrayList<>();
+            String prefix = request.platePrefix();
+            if (prefix != null && !prefix.isBlank()) {
+                sql.append(" AND plateNumber LIKE ? ESCAPE '\\'");
+                params.add(prefix.strip().replaceAll("([\\\\%_])", "\\\\$1") + "%");
+            }
+            if (request.enteredFrom() != null) {
+                sql.append(" AND entryTime >= ?");
+                params.add(toEpoch(request.enteredFrom()));
+            }
+            if (request.enteredTo() != null) {
+                sql.append(" AND entryTime < ?");
+                params.add(toEpoch(request.enteredTo()));
             }
 
-            stmt.executeUpdate();
+            String column = switch (request.sortKey()) {
+                case ID -> null;
+                case PLATE -> "plateNumber";
+                case ENTRY_TIME -> "entryTime";
+            };
+            String comparison = request.descending() ? " < " : " > ";
+            VehicleDto after = request.after();
+            if (after != null && column == null) {
+                sql.append(" AND id").append(comparison).append("?");
+                params.add(after.id());
+            } else if (after != null) {
+                sql.append(" AND (").append(column).append(", id)").append(comparison).append("(?, ?)");
+                params.add(request.sortKey() == VehiclePageRequest.SortKey.PLATE
+                        ? after.plateNumber() : toEpoch(after.entryTime()));
+                params.add(after.id());
+            }
+            String direction = request.descending() ? " DESC" : " ASC";
+            sql.append(" ORDER BY ");
+            if (column != null) {
+                sql.append(column).append(direction).append(", ");
+            }
+            sql.append("id").append(direction).append(" LIMIT ?");
+            params.add(request.pageSize() + 1);
 
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
+            List<VehicleDto> rows = new ArrayList<>(request.pageSize() + 1);
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(toDto(rs));
+                    }
                 }
             }
-        } catch (SQLException e) {
-            throw new RepositoryException("Insertion impossible");
-        }
-        return -1;
+            boolean hasMore = rows.size() > request.pageSize();
+            if (hasMore) {
+                rows.remove(rows.size() - 1);
+            }
+            return new VehiclePage(rows, hasMore);
+        });
     }
 
-    private int update(VehicleDto vehicle) {
-        String sql = """
-            UPDATE Vehicle
-            SET
-                plateNumber = ?, 
-                entryTime = ?, 
-                exitTime = ?
-            WHERE id = ? 
+    private static final String UPSERT_SQL = """
+            INSERT INTO
+                Vehicle (id, plateNumber, entryTime, exitTime)
+            VALUES
+                (?, ?, ?, ?)
+            ON CONFLICT(id) DO UPDATE SET
+                plateNumber = excluded.plateNumber,
+                entryTime = excluded.entryTime,
+                exitTime = excluded.exitTime
             """;
-        int updatedRows = 0;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, vehicle.plateNumber());
 
-            String entryTimeStr = vehicle.entryTime().format(DATE_TIME_FORMATTER);
-            String exitTimeStr = vehicle.exitTime().format(DATE_TIME_FORMATTER);
+    private static final String DELETE_SQL = "DELETE FROM Vehicle WHERE id = ?";
 
-            stmt.setString(2, entryTimeStr);
-            stmt.setString(3, exitTimeStr);
-            stmt.setInt(4, vehicle.id());
-            updatedRows = stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RepositoryException("Sauvegarde impossible");
-        }
-        return updatedRows;
+    private static final String ARCHIVE_SQL = """
+            INSERT INTO
+                VehicleArchive (id, plateNumber, entryTime, exitTime, archivedAt)
+            SELECT
+                id, plateNumber, entryTime, ?, ?
+            FROM
+                Vehicle
+            WHERE
+                id = ?
+            """;
+
+    private static void bindArchive(PreparedStatement stmt, int id, LocalDateTime exitTime) throws SQLException {
+        stmt.setLong(1, toEpoch(exitTime));
+        stmt.setLong(2, toEpoch(LocalDateTime.now()));
+        stmt.setInt(3, id);
     }
 
-    public int save(VehicleDto vehicle) {
-        int result = -1;
-        String sql = "SELECT COUNT(*) FROM Vehicle WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    private static void bindUpsert(PreparedStatement stmt, VehicleDto vehicle) throws SQLException {
+        if (vehicle.id() > 0) {
             stmt.setInt(1, vehicle.id());
-            ResultSet rs = stmt.executeQuery();
-            boolean found = rs.next() && rs.getInt(1) > 0;
-            if (found) {
-                if (this.update(vehicle) > 0) {
-                    result = vehicle.id();
+        } else {
+            stmt.setNull(1, Types.INTEGER);
+        }
+        stmt.setString(2, vehicle.plateNumber());
+        stmt.setLong(3, toEpoch(vehicle.entryTime()));
+        if (vehicle.exitTime() != null) {
+            stmt.setLong(4, toEpoch(vehicle.exitTime()));
+        } else {
+            stmt.setNull(4, Types.INTEGER);
+        }
+    }
+
+    /**
+     * Insère ou met à jour un véhicule en une seule requête.
+     * Un identifiant nul ou négatif laisse la base générer la clé.
+     *
+     * @param vehicle véhicule à enregistrer
+     * @return la ligne telle qu'enregistrée en base
+     * @throws RepositoryException si l'enregistrement échoue
+     */
+    public VehicleDto save(VehicleDto vehicle) {
+        return timed(SAVE, "Sauvegarde impossible", () -> {
+            String sql = UPSERT_SQL + "RETURNING id, plateNumber, entryTime, exitTime";
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql)) {
+                bindUpsert(stmt, vehicle);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return toDto(rs);
+                    }
                 }
-            } else {
-                result = this.insert(vehicle);
             }
-            return result;
-        } catch (SQLException e) {
-            throw new RepositoryException("Recherche impossible");
-        }
+            throw new RepositoryException("Sauvegarde impossible");
+        });
     }
 
-    public void delete(int id) {
-        System.out.println("Tentative de suppression du véhicule avec ID : " + id);
-        String sql = "DELETE FROM Vehicle WHERE id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, id);
-            int rowsAffected = stmt.executeUpdate();
-            System.out.println("Nombre de lignes affectées : " + rowsAffected);
-            if (rowsAffected == 0) {
-                System.out.println("Aucun véhicule trouvé avec l'ID " + id);
+    /**
+     * Applique une suite d'écritures, dans l'ordre, au sein d'une seule transaction.
+     * Un véhicule enregistré sans identifiant (nul ou négatif) reçoit celui généré par la base.
+     *
+     * @param mutations écritures à appliquer
+     * @return les véhicules enregistrés, tels qu'en base, dans l'ordre des {@link VehicleMutation.Upsert}
+     * @throws RepositoryException si la transaction échoue ; rien n'est alors écrit
+     */
+    public List<VehicleDto> applyBatch(List<VehicleMutation> mutations) {
+        return timed(APPLY_BATCH, "Écriture groupée impossible", () -> {
+            List<VehicleDto> saved = new ArrayList<>();
+            try (Connection connection = pool.borrow();
+                 PreparedStatement upsert = connection.prepareStatement(UPSERT_SQL + "RETURNING id, plateNumber, entryTime, exitTime");
+                 PreparedStatement delete = connection.prepareStatement(DELETE_SQL);
+                 PreparedStatement archive = connection.prepareStatement(ARCHIVE_SQL)) {
+                connection.setAutoCommit(false);
+                try {
+                    for (VehicleMutation mutation : mutations) {
+                        if (mutation instanceof VehicleMutation.Upsert(VehicleDto vehicle)) {
+                            bindUpsert(upsert, vehicle);
+                            try (ResultSet rs = upsert.executeQuery()) {
+                                if (rs.next()) {
+                                    saved.add(toDto(rs));
+                                }
+                            }
+                        } else if (mutation instanceof VehicleMutation.Delete(int id)) {
+                            delete.setInt(1, id);
+                            delete.executeUpdate();
+                        } else if (mutation instanceof VehicleMutation.Archive(int id, LocalDateTime exitTime)) {
+                            bindArchive(archive, id, exitTime);
+                            archive.executeUpdate();
+                            delete.setInt(1, id);
+                            delete.executeUpdate();
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la suppression du véhicule avec ID " + id);
-            e.printStackTrace();
-        }
+            return saved;
+        });
+    }
+
+    /**
+     * Déplace un véhicule sorti vers l'archive, en une transaction.
+     *
+     * @param id       identifiant du véhicule
+     * @param exitTime heure de départ réelle
+     * @throws RepositoryException si le déplacement échoue ; la ligne reste alors active
+     */
+    public void archive(int id, LocalDateTime exitTime) {
+        applyBatch(List.of(new VehicleMutation.Archive(id, exitTime)));
     }
 
-    public int getMaxVehicleId() {
-        String sql = "SELECT MAX(id) FROM Vehicle";
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                return rs.getInt(1);
+    /**
+     * Retourne le dernier identifiant attribué par AUTOINCREMENT (0 si aucun).
+     * Les identifiants supprimés n'étant jamais réutilisés, cette valeur borne toutes les clés existantes.
+     *
+     * @return plus grand identifiant jamais attribué
+     */
+    public int lastGeneratedId() {
+        return timed(LAST_GENERATED_ID, "Erreur lors de la récupération de l'ID maximal", () -> {
+            String sql = "SELECT seq FROM sqlite_sequence WHERE name = 'Vehicle'";
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
             }
-        } catch (SQLException e) {
-            throw new RepositoryException("Erreur lors de la récupération de l'ID maximal");
-        }
-        return 0;
+        });
     }
 
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+    /**
+     * Supprime un véhicule présent ; un identifiant déjà absent n'est pas une erreur,
+     * il est seulement compté ({@code db_delete_missing_total}).
+     *
+     * @param id identifiant du véhicule
+     * @throws RepositoryException si la suppression échoue
+     */
+    public void delete(int id) {
+        timed(DELETE, "Erreur lors de la suppression du véhicule avec ID " + id, () -> {
+            try (Connection connection = pool.borrow();
+                 PreparedStatement stmt = connection.prepareStatement(DELETE_SQL)) {
+                stmt.setInt(1, id);
+                if (stmt.executeUpdate() == 0) {
+                    DELETE_MISSING.increment();
+                }
             }
-        } catch (SQLException e) {
-            throw new RepositoryException("Erreur de fermeture de connexion");
-        }
+            return null;
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Écriture différée sur la table Vehicle, appliquée dans l'ordre par {@link VehicleDao#applyBatch}.
+ */
+public sealed interface VehicleMutation {
+
+    /**
+     * Insertion ou mise à jour d'un véhicule. En écriture différée, l'identifiant est déjà attribué ;
+     * sinon un identifiant nul ou négatif est généré par la base.
+     *
+     * @param vehicle véhicule à enregistrer
+     */
+    record Upsert(VehicleDto vehicle) implements VehicleMutation {
+    }
+
+    /**
+     * Suppression d'un véhicule.
+     *
+     * @param id identifiant du véhicule
+     */
+    record Delete(int id) implements VehicleMutation {
+    }
+
+    /**
+     * Sortie d'un véhicule : la ligne est déplacée vers l'archive avec l'heure de départ réelle.
+     *
+     * @param id       identifiant du véhicule
+     * @param exitTime heure de départ
+     */
+    record Archive(int id, LocalDateTime exitTime) implements VehicleMutation {
+    }
+}
@@ -0,0 +1,21 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+
+import java.util.List;
+
+/**
+ * Page de résultats d'une {@link VehiclePageRequest}.
+ *
+ * @param rows    lignes de la page, dans l'ordre demandé
+ * @param hasMore {@code true} si d'autres lignes suivent
+ */
+public record VehiclePage(List<VehicleDto> rows, boolean hasMore) {
+
+    /**
+     * @return la demande de la page suivante, à partir de la dernière ligne de celle-ci
+     */
+    public VehiclePageRequest nextRequest(VehiclePageRequest request) {
+        return rows.isEmpty() ? request : request.next(rows.get(rows.size() - 1));
+    }
+}
@@ -0,0 +1,46 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Demande d'une page de véhicules, filtrée et triée côté base.
+ * La pagination se fait par clé (« keyset ») : la page suivante commence après la dernière
+ * ligne de la précédente, ce qui garde un coût constant quelle que soit la profondeur.
+ *
+ * @param platePrefix début de plaque recherché (insensible à la casse), ou {@code null}
+ * @param enteredFrom borne inférieure incluse de l'heure d'entrée, ou {@code null}
+ * @param enteredTo   borne supérieure exclue de l'heure d'entrée, ou {@code null}
+ * @param sortKey     colonne de tri
+ * @param descending  tri décroissant
+ * @param pageSize    nombre maximal de lignes renvoyées
+ * @param after       dernière ligne de la page précédente, ou {@code null} pour la première page
+ */
+public record VehiclePageRequest(String platePrefix, LocalDateTime enteredFrom, LocalDateTime enteredTo,
+                                 SortKey sortKey, boolean descending, int pageSize, VehicleDto after) {
+
+    /**
+     * Colonnes de tri autorisées ; l'identifiant départage toujours les égalités.
+     */
+    public enum SortKey {
+        ID, PLATE, ENTRY_TIME
+    }
+
+    public VehiclePageRequest {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("La taille de page doit être positive");
+        }
+        if (sortKey == null) {
+            sortKey = SortKey.ID;
+        }
+    }
+
+    /**
+     * @param last dernière ligne reçue
+     * @return la même demande pour la page suivante
+     */
+    public VehiclePageRequest next(VehicleDto last) {
+        return new VehiclePageRequest(platePrefix, enteredFrom, enteredTo, sortKey, descending, pageSize, last);
+    }
+}
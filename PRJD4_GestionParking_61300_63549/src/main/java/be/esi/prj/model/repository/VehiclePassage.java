@@ -0,0 +1,25 @@
+package be.esi.prj.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Passage d'un véhicule détecté automatiquement par la caméra d'une voie.
+ * Voir {@link VehicleRepository#registerPassages}.
+ *
+ * @param plateNumber plaque lue
+ * @param seenAt      heure de la prise de vue
+ * @param lane        voie de la caméra
+ */
+public record VehiclePassage(String plateNumber, LocalDateTime seenAt, Lane lane) {
+
+    /** Voie filmée : seule une voie de sortie peut terminer un séjour. */
+    public enum Lane {
+        ENTRY,
+        EXIT
+    }
+
+    public VehiclePassage {
+        Objects.requireNonNull(lane, "Voie requise");
+    }
+}
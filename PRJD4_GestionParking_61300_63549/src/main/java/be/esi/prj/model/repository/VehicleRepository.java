@@ -1,52 +1,382 @@
 package be.esi.prj.model.repository;
 
+import be.esi.prj.model.ExecutionService;
+import be.esi.prj.model.Metrics;
 import be.esi.prj.model.ParkingTicket;
+import be.esi.prj.model.Stays;
 import be.esi.prj.model.dto.VehicleDto;
 
-import java.sql.Connection;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Repository pour la gestion des véhicules.
  * Cette classe sert de couche intermédiaire entre le VehicleDao et le reste de l'application.
  * Elle utilise un cache mémoire pour optimiser l'accès aux données des véhicules.
+ * En mode écriture différée, les modifications sont visibles immédiatement dans le cache
+ * et persistées par lots en arrière-plan ; les identifiants sont alors attribués en mémoire.
+ * <p>
+ * L'application partage une seule instance ({@link #getInstance()}) : les vues s'abonnent
+ * aux modifications via {@link #addListener} au lieu de relire la base.
+ * <p>
+ * Le cache est chargé en arrière-plan dès la création, par tranches d'identifiants lues en parallèle ;
+ * {@link #ready()} signale la fin du chargement et les opérations qui dépendent du cache l'attendent :
+ * elles peuvent bloquer et ne doivent pas être appelées depuis le thread JavaFX (les contrôleurs passent
+ * par {@code ExecutionService.io()}).
+ * Avec une politique de cache bornée ({@code db.cache.policy}, voir
+ * {@link VehicleCache}), le cache est partiel : les recherches absentes du cache sont complétées par la base.
+ * <p>
+ * Seuls les véhicules présents sont gardés en mémoire : à la sortie ({@link #checkout}), la ligne
+ * est déplacée vers l'archive en base, qui n'est lue que par l'historique ({@link #findPage},
+ * {@link #streamHistory}). La mémoire dépend ainsi de la capacité du parking, pas de son ancienneté.
+ * <p>
+ * Les plaques présentes sont aussi indexées pour la recherche approximative ({@link PlateIndex}) :
+ * une lecture OCR bruitée par des confusions (O/0, I/1...) retrouve quand même son ticket ; une lecture
+ * à un caractère près ne donne que des candidats, à faire confirmer par l'agent ({@link #findTicketCandidates}).
  */
 public class VehicleRepository {
+    private static VehicleRepository instance;
+    /** Éditions tolérées entre la lecture et les plaques proposées à l'agent. */
+    private static final int TICKET_CANDIDATE_DISTANCE = 1;
+    private static final int TICKET_CANDIDATE_LIMIT = 5;
+
+    /** Jauges du repository partagé, retirées à sa fermeture. */
+    private static final List<String> GAUGES = List.of("vehicle_cache_hit_ratio", "vehicle_cache_size",
+            "vehicle_cache_hits", "vehicle_cache_misses", "vehicle_cache_evictions",
+            "write_behind_depth", "write_behind_unwritten", "write_behind_dead_lettered");
+
     private final VehicleDao vehicleDao;
-    private final Map<Integer, VehicleDto> vehicleCache;
+    private final VehicleCache vehicleCache;
+    /** Toutes les plaques présentes, même quand le cache est partiel. */
+    private final PlateIndex plateIndex = new PlateIndex();
+    private final WriteBehindQueue writeBehind;
+    private final AtomicInteger idSequence;
+    private final List<VehicleChangeListener> listeners = new CopyOnWriteArrayList<>();
+    /** Le cache ne contient pas forcément tous les véhicules présents : les absences sont vérifiées en base. */
+    private final boolean partial;
+    private final CompletableFuture<Void> ready;
 
-    public VehicleRepository() {
-        Connection connection = ConnectionManager.getConnection();
-        this.vehicleDao = new VehicleDao(connection);
-        this.vehicleCache = new ConcurrentHashMap<>();
-        loadCache();
+    private VehicleRepository() {
+        this(new VehicleDao(ConnectionManager.getPool()), writeBehindEnabled(), cacheConfig());
+    }
+
+    /**
+     * Retourne le repository partagé par toute l'application, créé au premier appel.
+     *
+     * @return instance unique
+     */
+    public static synchronized VehicleRepository getInstance() {
+        if (instance == null) {
+            instance = new VehicleRepository();
+            instance.registerMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Expose l'état du cache et de l'écriture différée comme jauges, lues à chaque export des métriques.
+     */
+    private void registerMetrics() {
+        Metrics.gauge("vehicle_cache_hit_ratio", () -> vehicleCache.stats().hitRate());
+        Metrics.gauge("vehicle_cache_size", () -> vehicleCache.stats().size());
+        Metrics.gauge("vehicle_cache_hits", () -> vehicleCache.stats().hits());
+        Metrics.gauge("vehicle_cache_misses", () -> vehicleCache.stats().misses());
+        Metrics.gauge("vehicle_cache_evictions", () -> vehicleCache.stats().evictions());
+        if (writeBehind != null) {
+            Metrics.gauge("write_behind_depth", () -> writeBehind.stats().depth());
+            Metrics.gauge("write_behind_unwritten", () -> writeBehind.stats().unwritten());
+            Metrics.gauge("write_behind_dead_lettered", () -> writeBehind.stats().deadLettered());
+        }
+    }
+
+    /**
+     * Ferme le repository partagé s'il a été créé (écritures en attente comprises).
+     *
+     * @throws RepositoryException si des écritures différées n'ont pas pu être appliquées
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            try {
+                instance.close();
+            } finally {
+                instance = null;
+                GAUGES.forEach(Metrics::removeGauge);
+            }
+        }
     }
 
     VehicleRepository(VehicleDao vehicleDao) {
-        this.vehicleDao = Objects.requireNonNull(vehicleDao, "VehicleDao is required");
-        this.vehicleCache = new ConcurrentHashMap<>();
-        loadCache();
+        this(vehicleDao, false, VehicleCache.Config.unbounded());
     }
 
-    private void loadCache() {
-        vehicleDao.findAll().forEach(
-                dto -> vehicleCache.put(dto.id(), dto)
+    VehicleRepository(VehicleDao vehicleDao, boolean writeBehindEnabled, VehicleCache.Config cacheConfig) {
+        this.vehicleDao = Objects.requireNonNull(vehicleDao, "VehicleDao is required");
+        this.vehicleCache = new VehicleCache(cacheConfig);
+        if (writeBehindEnabled) {
+            this.idSequence = new AtomicInteger(vehicleDao.lastGeneratedId());
+            this.writeBehind = new WriteBehindQueue(
+                    vehicleDao,
+                    (int) ConnectionManager.longProperty("db.writeBehind.queueCapacity", 1024),
+                    (int) ConnectionManager.longProperty("db.writeBehind.batchSize", 64),
+                    ConnectionManager.longProperty("db.writeBehind.lingerMs", 50)
+            );
+        } else {
+            this.idSequence = null;
+            this.writeBehind = null;
+        }
+        this.partial = !vehicleCache.isComplete();
+        this.ready = loadCache(
+                (int) ConnectionManager.longProperty("db.cache.warmUpChunkSize", 5_000),
+                (int) ConnectionManager.longProperty("db.cache.warmUpThreads",
+                        ConnectionManager.longProperty("db.pool.maxSize", 4))
         );
     }
 
+    private static boolean writeBehindEnabled() {
+        return ConnectionManager.longProperty("db.writeBehind.enabled", 0) != 0;
+    }
+
+    private static VehicleCache.Config cacheConfig() {
+        String policy = ConnectionManager.stringProperty("db.cache.policy", "UNBOUNDED");
+        try {
+            return new VehicleCache.Config(
+                    VehicleCache.Policy.valueOf(policy.toUpperCase(Locale.ROOT)),
+                    (int) ConnectionManager.longProperty("db.cache.maxSize", 10_000),
+                    ConnectionManager.longProperty("db.cache.ttlMs", 300_000),
+                    ConnectionManager.longProperty("db.cache.negativeTtlMs", 30_000)
+            );
+        } catch (IllegalArgumentException e) {
+            throw new RepositoryException("Configuration du cache invalide : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lance le chargement du cache : la plage d'identifiants est découpée en tranches,
+     * lues et décodées en parallèle sur des threads virtuels puis fusionnées dans le cache.
+     *
+     * @param threads tranches lues en même temps au plus (connexions empruntées au pool)
+     * @return tâche terminée quand tout le cache est chargé
+     */
+    private CompletableFuture<Void> loadCache(int chunkSize, int threads) {
+        ExecutionService.Pool loader = ExecutionService.getInstance().io();
+        Semaphore readers = new Semaphore(Math.max(1, threads));
+        CompletableFuture<Void> loading = loader
+                .supplyAsync(vehicleDao::idBounds)
+                .thenCompose(bounds -> {
+                    List<CompletableFuture<Void>> chunks = new ArrayList<>();
+                    for (long from = bounds[0]; from <= bounds[1]; from += chunkSize) {
+                        int start = (int) from;
+                        int end = (int) Math.min(from + chunkSize, bounds[1] + 1L);
+                        chunks.add(loader
+                                .supplyAsync(() -> readChunk(readers, start, end))
+                                .thenAccept(this::merge));
+                    }
+                    return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new));
+                });
+        loading.whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("Chargement du cache impossible : " + error.getMessage());
+            }
+        });
+        return loading;
+    }
+
+    private List<VehicleDto> readChunk(Semaphore readers, int start, int end) {
+        readers.acquireUninterruptibly();
+        try {
+            return vehicleDao.findByIdRange(start, end);
+        } finally {
+            readers.release();
+        }
+    }
+
+    private synchronized void merge(List<VehicleDto> chunk) {
+        for (VehicleDto dto : chunk) {
+            vehicleCache.put(dto);
+            plateIndex.add(dto.plateNumber());
+        }
+    }
+
+    /**
+     * @return tâche terminée quand le cache initial est chargé
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    private void awaitReady() {
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            throw new RepositoryException("Chargement du cache impossible");
+        }
+    }
+
+    public void addListener(VehicleChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(VehicleChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fire(VehicleChangeEvent event) {
+        if (event == null) {
+            return;
+        }
+        for (VehicleChangeListener listener : listeners) {
+            try {
+                listener.onVehicleChanged(event);
+            } catch (RuntimeException e) {
+                System.err.println("Erreur dans un écouteur du repository : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Normalise une plaque pour l'index : espaces retirés et majuscules.
+     *
+     * @param plateNumber plaque brute
+     * @return clé d'index, ou {@code null} si la plaque est absente
+     */
+    static String normalizePlate(String plateNumber) {
+        return plateNumber == null ? null : plateNumber.strip().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Met à jour le cache pour un véhicule.
+     * Appelé uniquement sous le verrou du repository.
+     *
+     * @return la modification correspondante
+     */
+    private VehicleChangeEvent cache(VehicleDto dto) {
+        VehicleDto previous = vehicleCache.put(dto);
+        if (previous != null) {
+            plateIndex.remove(previous.plateNumber());
+        }
+        plateIndex.add(dto.plateNumber());
+        return previous == null
+                ? new VehicleChangeEvent(VehicleChangeEvent.Type.ADDED, null, dto)
+                : new VehicleChangeEvent(VehicleChangeEvent.Type.UPDATED, previous, dto);
+    }
+
+    /**
+     * Retire un véhicule du cache.
+     * Appelé uniquement sous le verrou du repository.
+     *
+     * @param stored version lue en base avant suppression, pour un véhicule absent d'un cache partiel
+     * @return la suppression correspondante, ou {@code null} si le véhicule est inconnu
+     */
+    private VehicleChangeEvent evict(int id, VehicleDto stored) {
+        VehicleDto previous = vehicleCache.remove(id);
+        if (previous == null) {
+            previous = stored;
+        }
+        if (previous != null) {
+            plateIndex.remove(previous.plateNumber());
+        }
+        return previous == null ? null : new VehicleChangeEvent(VehicleChangeEvent.Type.REMOVED, previous, null);
+    }
+
+    /**
+     * Recherche un véhicule présent ; une absence du cache est lue en base puis mise en cache.
+     */
     public Optional<VehicleDto> findById(int id) {
-        return Optional.ofNullable(vehicleCache.get(id))
-                .or(() -> vehicleDao.findById(id));
+        awaitReady();
+        return vehicleCache.getOrLoad(id, this::loadById);
+    }
+
+    private Optional<VehicleDto> loadById(int id) {
+        flushPendingWrites();
+        return indexed(vehicleDao.findById(id));
+    }
+
+    private Optional<VehicleDto> loadByPlate(String key) {
+        flushPendingWrites();
+        return indexed(vehicleDao.findByPlate(key));
+    }
+
+    /** Un véhicule lu en base (absent du préchargement) devient trouvable par la recherche approximative. */
+    private Optional<VehicleDto> indexed(Optional<VehicleDto> loaded) {
+        loaded.ifPresent(dto -> plateIndex.add(dto.plateNumber()));
+        return loaded;
+    }
+
+    /** En écriture différée, la base n'est lue qu'après application des écritures en attente. */
+    private void flushPendingWrites() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Indique si un véhicule portant cette plaque est présent dans le parking.
+     *
+     * @param plateNumber numéro de plaque (insensible à la casse)
+     * @return {@code true} si la plaque est déjà enregistrée
+     */
+    public boolean existsByPlate(String plateNumber) {
+        if (partial) {
+            return findActiveByPlate(plateNumber).isPresent();
+        }
+        awaitReady();
+        String key = normalizePlate(plateNumber);
+        return key != null && vehicleCache.findByPlate(key) != null;
+    }
+
+    /**
+     * Recherche le véhicule présent dans le parking pour une plaque donnée, via l'index.
+     *
+     * @param plateNumber numéro de plaque (insensible à la casse)
+     * @return le véhicule, ou {@code Optional.empty()} si aucun n'est présent
+     */
+    public Optional<VehicleDto> findActiveByPlate(String plateNumber) {
+        awaitReady();
+        String key = normalizePlate(plateNumber);
+        if (key == null) {
+            return Optional.empty();
+        }
+        if (!partial) {
+            return Optional.ofNullable(vehicleCache.findByPlate(key));
+        }
+        // cache partiel : le véhicule a pu être évincé, ou dépasser sa sortie prévue avant le préchargement
+        return vehicleCache.getOrLoadByPlate(key, this::loadByPlate);
+    }
+
+    /**
+     * Recherche les plaques présentes proches d'une lecture OCR, les plus proches en premier.
+     *
+     * @param plateNumber texte lu
+     * @param maxDistance éditions tolérées, une fois les confusions O/0, I/1, B/8... ignorées
+     * @param limit       nombre maximal de candidats
+     * @return candidats classés
+     */
+    public List<PlateMatch> findPlateCandidates(String plateNumber, int maxDistance, int limit) {
+        awaitReady();
+        return plateIndex.search(plateNumber, maxDistance, limit);
     }
 
     /**
      * Recherche un ticket de parking à partir du numéro de plaque (insensible à la casse).
+     * Sans correspondance exacte, une plaque présente n'est retenue que si elle est la seule à ne différer
+     * de la lecture que par des confusions (O/0, I/1...) ; une plaque à un caractère près peut être celle
+     * d'un autre véhicule et n'est jamais retenue d'office (voir {@link #findTicketCandidates}).
      */
     public Optional<ParkingTicket> findTicketByPlate(String plateNumber) {
-        return vehicleCache.values().stream()
-                .filter(dto -> dto.plateNumber().equalsIgnoreCase(plateNumber))
-                .findFirst()
+        Optional<VehicleDto> vehicle = findActiveByPlate(plateNumber);
+        if (vehicle.isEmpty()) {
+            List<PlateMatch> candidates = findPlateCandidates(plateNumber, 0, 2);
+            if (candidates.size() == 1) {
+                vehicle = findActiveByPlate(candidates.getFirst().plateNumber());
+            }
+        }
+        return vehicle
                 .map(dto -> new ParkingTicket(
                         dto.id(),
                         dto.plateNumber(),
@@ -55,36 +385,246 @@ public class VehicleRepository {
                 ));
     }
 
+    /**
+     * Plaques présentes proches d'une lecture sans ticket retrouvé, à proposer à l'agent pour confirmation.
+     *
+     * @param plateNumber texte lu
+     * @return candidats à un caractère près au plus, les plus proches en premier
+     */
+    public List<PlateMatch> findTicketCandidates(String plateNumber) {
+        return findPlateCandidates(plateNumber, TICKET_CANDIDATE_DISTANCE, TICKET_CANDIDATE_LIMIT);
+    }
+
     public List<VehicleDto> findAll() {
-        return new ArrayList<>(vehicleCache.values());
+        awaitReady();
+        if (partial) {
+            flushPendingWrites();
+            return vehicleDao.findAll();
+        }
+        return vehicleCache.values();
+    }
+
+    /**
+     * Lit une page de l'historique (présents et archivés) directement en base, sans passer par le cache.
+     *
+     * @param request filtres, tri et position de la page
+     * @return la page demandée
+     */
+    public VehiclePage findPage(VehiclePageRequest request) {
+        return vehicleDao.findPage(request);
+    }
+
+    /**
+     * Lit en colonnes les séjours de l'historique entrés sur une période, pour la tarification en masse
+     * ({@link be.esi.prj.model.BulkFeeEvaluator}). Les séjours en cours sont comptés jusqu'à maintenant.
+     *
+     * @param enteredFrom début de la période (inclus)
+     * @param enteredTo   fin de la période (exclue)
+     * @param fetchSize   nombre de lignes lues par aller-retour du pilote
+     * @return séjours, par entrée croissante
+     */
+    public Stays loadStays(LocalDateTime enteredFrom, LocalDateTime enteredTo, int fetchSize) {
+        flushPendingWrites();
+        return vehicleDao.loadStays(enteredFrom, enteredTo, LocalDateTime.now(), fetchSize);
+    }
+
+    /**
+     * Parcourt tout l'historique en base (présents et archivés) à mémoire constante, pour les exports et rapports.
+     * Le flux doit être fermé après usage (try-with-resources).
+     *
+     * @param fetchSize nombre de lignes lues par aller-retour du pilote
+     * @return flux des véhicules, par identifiant croissant
+     */
+    public Stream<VehicleDto> streamHistory(int fetchSize) {
+        return vehicleDao.streamHistory(fetchSize);
     }
 
+    /**
+     * Enregistre un nouveau véhicule (identifiant 0) ou met à jour un véhicule présent.
+     *
+     * @return l'identifiant du véhicule
+     * @throws RepositoryException si l'identifiant n'est plus présent : un véhicule sorti (archivé)
+     *                             ou supprimé n'est jamais recréé par une mise à jour tardive
+     */
     public int save(VehicleDto vehicle) {
-        int generatedId = vehicleDao.save(vehicle);
-        if (generatedId != -1) {
-            vehicleCache.put(
-                    generatedId,
-                    new VehicleDto(
-                            generatedId,
-                            vehicle.plateNumber(),
-                            vehicle.entryTime(),
-                            vehicle.exitTime()
-                    )
-            );
+        awaitReady();
+        VehicleChangeEvent event;
+        synchronized (this) {
+            event = saveLocked(vehicle);
+        }
+        fire(event);
+        return event.id();
+    }
+
+    private VehicleChangeEvent saveLocked(VehicleDto vehicle) {
+        if (vehicle.id() > 0 && findById(vehicle.id()).isEmpty()) {
+            throw new RepositoryException("Véhicule " + vehicle.id() + " absent du parking, mise à jour refusée");
+        }
+        if (writeBehind == null) {
+            return cache(vehicleDao.save(vehicle));
         }
-        return generatedId;
+        VehicleDto withId = vehicle.id() > 0 ? vehicle : new VehicleDto(
+                idSequence.incrementAndGet(),
+                vehicle.plateNumber(),
+                vehicle.entryTime(),
+                vehicle.exitTime()
+        );
+        VehicleChangeEvent event = cache(withId);
+        writeBehind.submit(new VehicleMutation.Upsert(withId));
+        return event;
     }
 
-    public int getMaxVehicleId() {
-        return vehicleDao.getMaxVehicleId();
+    /**
+     * Enregistre l'entrée d'un véhicule en une seule écriture ; l'identifiant est généré
+     * par la base (AUTOINCREMENT), ou par la séquence en mémoire en mode écriture différée. La vérification de doublon et l'insertion sont atomiques,
+     * ce qui permet à plusieurs voies d'entrée d'enregistrer en parallèle.
+     *
+     * @param plateNumber numéro de plaque
+     * @param entryTime   date et heure d'entrée
+     * @param exitTime    date et heure de sortie prévue
+     * @return l'identifiant généré, ou -1 si un véhicule avec cette plaque est déjà présent
+     */
+    public int registerEntry(String plateNumber, LocalDateTime entryTime, LocalDateTime exitTime) {
+        if (partial && findActiveByPlate(plateNumber).isPresent()) {
+            return -1;
+        }
+        awaitReady();
+        VehicleChangeEvent event;
+        synchronized (this) {
+            if (existsByPlate(plateNumber)) {
+                return -1;
+            }
+            event = saveLocked(new VehicleDto(0, plateNumber, entryTime, exitTime));
+        }
+        fire(event);
+        return event.id();
     }
 
     public void delete(int id) {
-        vehicleDao.delete(id);
-        vehicleCache.remove(id);
+        awaitReady();
+        VehicleDto stored = partial ? findById(id).orElse(null) : null;
+        VehicleChangeEvent event;
+        synchronized (this) {
+            if (writeBehind == null) {
+                vehicleDao.delete(id);
+            } else {
+                writeBehind.submit(new VehicleMutation.Delete(id));
+            }
+            event = evict(id, stored);
+        }
+        fire(event);
+    }
+
+    /**
+     * Enregistre la sortie d'un véhicule : il quitte le cache et sa ligne est déplacée vers l'archive,
+     * immédiatement ou avec le prochain lot en mode écriture différée.
+     *
+     * @param id       identifiant du véhicule
+     * @param exitTime heure de départ réelle
+     */
+    public void checkout(int id, LocalDateTime exitTime) {
+        awaitReady();
+        VehicleDto stored = partial ? findById(id).orElse(null) : null;
+        VehicleChangeEvent event;
+        synchronized (this) {
+            if (writeBehind == null) {
+                vehicleDao.archive(id, exitTime);
+            } else {
+                writeBehind.submit(new VehicleMutation.Archive(id, exitTime));
+            }
+            event = evict(id, stored);
+        }
+        fire(event);
+    }
+
+    /**
+     * Enregistre un lot de passages détectés automatiquement : un passage en voie d'entrée enregistre
+     * une plaque absente du parking, un passage en voie de sortie archive la ligne d'une plaque présente.
+     * Les autres passages (véhicule stationné revu en entrée, sortie sans entrée) sont ignorés :
+     * seule la voie de sortie termine un séjour. Une plaque n'est traitée qu'une fois par lot.
+     * Toutes les écritures du lot sont faites dans une seule transaction, ou confiées ensemble
+     * à la file d'écriture différée.
+     *
+     * @param passages passages à enregistrer, dans l'ordre des prises de vue
+     * @return les modifications appliquées (ADDED pour une entrée, REMOVED pour une sortie),
+     *         sans rien pour les passages ignorés
+     */
+    public List<VehicleChangeEvent> registerPassages(List<VehiclePassage> passages) {
+        awaitReady();
+        List<VehicleChangeEvent> events = new ArrayList<>();
+        synchronized (this) {
+            Set<String> plates = new HashSet<>();
+            List<VehicleMutation> mutations = new ArrayList<>();
+            Map<Integer, VehicleDto> leaving = new HashMap<>();
+            for (VehiclePassage passage : passages) {
+                String key = normalizePlate(passage.plateNumber());
+                if (key == null || key.isEmpty() || !plates.add(key)) {
+                    continue;
+                }
+                Optional<VehicleDto> active = findActiveByPlate(key);
+                if (passage.lane() == VehiclePassage.Lane.EXIT) {
+                    if (active.isEmpty()) {
+                        System.err.println("Sortie sans entrée enregistrée ignorée : " + key);
+                        continue;
+                    }
+                    leaving.put(active.get().id(), active.get());
+                    mutations.add(new VehicleMutation.Archive(active.get().id(), passage.seenAt()));
+                } else if (active.isEmpty()) {
+                    int id = writeBehind != null ? idSequence.incrementAndGet() : 0;
+                    mutations.add(new VehicleMutation.Upsert(new VehicleDto(id, key, passage.seenAt(), null)));
+                }
+            }
+            if (mutations.isEmpty()) {
+                return events;
+            }
+            Iterator<VehicleDto> saved;
+            if (writeBehind == null) {
+                saved = vehicleDao.applyBatch(mutations).iterator();
+            } else {
+                mutations.forEach(writeBehind::submit);
+                saved = mutations.stream()
+                        .filter(VehicleMutation.Upsert.class::isInstance)
+                        .map(mutation -> ((VehicleMutation.Upsert) mutation).vehicle())
+                        .iterator();
+            }
+            for (VehicleMutation mutation : mutations) {
+                if (mutation instanceof VehicleMutation.Archive(int id, LocalDateTime exitTime)) {
+                    events.add(evict(id, leaving.get(id)));
+                } else {
+                    events.add(cache(saved.next()));
+                }
+            }
+        }
+        events.forEach(this::fire);
+        return events;
+    }
+
+    /**
+     * Statistiques du cache (taille, succès, absences mémorisées, évictions), pour le dimensionner.
+     */
+    public VehicleCache.Stats cacheStats() {
+        return vehicleCache.stats();
     }
 
+    /**
+     * Statistiques de la file d'écriture différée, si ce mode est actif.
+     */
+    public Optional<WriteBehindQueue.Stats> writeBehindStats() {
+        return Optional.ofNullable(writeBehind).map(WriteBehindQueue::stats);
+    }
+
+    /**
+     * Applique les écritures différées en attente puis ferme les connexions.
+     *
+     * @throws RepositoryException si des écritures différées n'ont pas pu être appliquées
+     */
     public void close() {
-        ConnectionManager.close();
+        try {
+            if (writeBehind != null) {
+                writeBehind.close();
+            }
+        } finally {
+            ConnectionManager.close();
+        }
     }
 }
@@ -0,0 +1,421 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.ExecutionService;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * File d'écritures différées vers la base.
+ * Les écritures sont ajoutées à une file bornée ; une tâche du pool {@code io} ({@link ExecutionService})
+ * les regroupe par lots (au plus {@code batchSize}, en attendant au plus {@code lingerMillis} pour compléter un lot)
+ * et les applique chacun dans une seule transaction. Quand la file est pleine, l'appelant attend :
+ * le temps passé à attendre est exposé dans les statistiques.
+ * <p>
+ * Un lot qui échoue est retenté avec un délai croissant. S'il échoue encore, ses écritures sont rejouées
+ * une à une : celles qui passent sont appliquées, les autres sont gardées, dans l'ordre, en tête du lot
+ * suivant, et {@link #flush()} comme {@link #close()} lèvent une {@link RepositoryException} tant qu'elles
+ * ne sont pas en base. Une écriture qui échoue seule alors que d'autres passent, ou qui a échoué à
+ * {@value #MAX_REPLAYS} reprises, est écartée vers les écritures rejetées ({@link #deadLetters()}),
+ * comptées dans les statistiques : une écriture invalide ne bloque pas les suivantes.
+ * Les écritures gardées sont limitées à la capacité de la file : au-delà, {@link #submit} attend.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    private static final int MAX_ATTEMPTS = 5;
+    /** Délai avant la deuxième tentative, doublé à chaque échec. */
+    private static final long FIRST_BACKOFF_MILLIS = 100;
+    /** Délai entre deux reprises des écritures gardées quand aucune nouvelle écriture n'arrive. */
+    private static final long RETRY_PERIOD_MILLIS = 5_000;
+    /** Reprises une à une au-delà desquelles une écriture toujours en échec est écartée. */
+    private static final int MAX_REPLAYS = 5;
+
+    /**
+     * Instantané des métriques de la file.
+     *
+     * @param depth          écritures en attente
+     * @param capacity       capacité de la file
+     * @param enqueued       écritures reçues
+     * @param written        écritures appliquées en base
+     * @param batches        transactions validées
+     * @param failed         lots restés en échec après toutes leurs tentatives
+     * @param unwritten      écritures gardées après un échec, en attente d'une reprise
+     * @param deadLettered   écritures écartées après des échecs répétés
+     * @param blockedPuts    ajouts ayant dû attendre une place dans la file
+     * @param blockedMillis  temps total d'attente des appelants
+     */
+    public record Stats(int depth, int capacity, long enqueued, long written, long batches, long failed,
+                        int unwritten, long deadLettered, long blockedPuts, double blockedMillis) {
+    }
+
+    /**
+     * Élément de la file : une écriture, ou un point de synchronisation pour {@link #flush()},
+     * complété en échec si des écritures antérieures n'ont pas pu être appliquées.
+     */
+    private record Entry(VehicleMutation mutation, CompletableFuture<Void> barrier) {
+    }
+
+    private final VehicleDao vehicleDao;
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final BlockingQueue<Entry> queue;
+    private final Future<?> writer;
+    private volatile boolean closed;
+    /** Écritures en échec, à rejouer avant toute autre. Accès par la seule tâche d'écriture. */
+    private final List<VehicleMutation> unwritten = new ArrayList<>();
+    private volatile int unwrittenCount;
+    /** Échecs en reprise une à une, par écriture gardée. Accès par la seule tâche d'écriture. */
+    private final Map<VehicleMutation, Integer> replays = new IdentityHashMap<>();
+    /** Écritures écartées depuis le dernier point de synchronisation. Accès par la seule tâche d'écriture. */
+    private int rejectedSinceBarrier;
+    /** Dernières écritures écartées, au plus {@code capacity}. Accès sous verrou. */
+    private final List<VehicleMutation> deadLetters = new ArrayList<>();
+    /** Signalé quand des écritures gardées sont appliquées ou écartées, pour les appelants en attente de place. */
+    private final Object room = new Object();
+    private volatile RepositoryException lastFailure;
+    private long nextRetryNanos;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder blockedPuts = new LongAdder();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    public WriteBehindQueue(VehicleDao vehicleDao, int capacity, int batchSize, long lingerMillis) {
+        if (capacity < 1 || batchSize < 1 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Paramètres de file invalides");
+        }
+        this.vehicleDao = Objects.requireNonNull(vehicleDao, "VehicleDao is required");
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = ExecutionService.getInstance().io().submit(this::drainLoop);
+    }
+
+    /**
+     * Ajoute une écriture à la file, en attendant une place si elle est pleine
+     * ou si les écritures gardées après un échec atteignent la capacité.
+     *
+     * @param mutation écriture à appliquer
+     * @throws RepositoryException si la file est fermée ou l'attente interrompue
+     */
+    public void submit(VehicleMutation mutation) {
+        Objects.requireNonNull(mutation);
+        awaitRoom();
+        put(new Entry(mutation, null));
+        enqueued.increment();
+    }
+
+    private void awaitRoom() {
+        if (unwrittenCount < capacity) {
+            return;
+        }
+        blockedPuts.increment();
+        long start = System.nanoTime();
+        try {
+            synchronized (room) {
+                while (unwrittenCount >= capacity && !closed) {
+                    room.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Attente d'écriture interrompue");
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Attend que toutes les écritures soumises avant l'appel soient appliquées.
+     *
+     * @throws RepositoryException si certaines n'ont pas pu l'être ; elles restent gardées et seront retentées
+     */
+    public void flush() {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        put(new Entry(null, barrier));
+        try {
+            barrier.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Attente d'écriture interrompue");
+        } catch (ExecutionException e) {
+            throw new RepositoryException(e.getCause().getMessage());
+        }
+    }
+
+    private void put(Entry entry) {
+        if (closed) {
+            throw new RepositoryException("File d'écriture fermée");
+        }
+        if (queue.offer(entry)) {
+            return;
+        }
+        blockedPuts.increment();
+        long start = System.nanoTime();
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Attente d'écriture interrompue");
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!unwritten.isEmpty() && System.nanoTime() >= nextRetryNanos) {
+                        write(batch);
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize && first.barrier() == null) {
+                    Entry next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    if (next.barrier() != null) {
+                        break;
+                    }
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    queue.drainTo(batch);
+                    write(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+        if (!unwritten.isEmpty()) {
+            // dernière chance avant l'arrêt ; close() signale ce qui reste
+            write(batch);
+        }
+    }
+
+    /**
+     * Applique les écritures gardées puis celles du lot, dans l'ordre, et libère les points de synchronisation.
+     */
+    private void write(List<Entry> batch) {
+        List<VehicleMutation> mutations = new ArrayList<>(unwritten);
+        for (Entry entry : batch) {
+            if (entry.mutation() != null) {
+                mutations.add(entry.mutation());
+            }
+        }
+        if (!mutations.isEmpty()) {
+            RepositoryException failure = applyWithRetry(mutations);
+            unwritten.clear();
+            if (failure == null) {
+                replays.clear();
+            } else {
+                failed.increment();
+                rejectedSinceBarrier += replayOneByOne(mutations);
+            }
+            if (unwritten.isEmpty()) {
+                lastFailure = null;
+            } else {
+                nextRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RETRY_PERIOD_MILLIS);
+                lastFailure = new RepositoryException(unwritten.size()
+                        + " écriture(s) non appliquée(s), gardées pour une nouvelle tentative : " + failure.getMessage());
+                System.err.println(lastFailure.getMessage());
+            }
+            unwrittenCount = unwritten.size();
+            synchronized (room) {
+                room.notifyAll();
+            }
+        }
+        for (Entry entry : batch) {
+            if (entry.barrier() != null) {
+                if (!unwritten.isEmpty()) {
+                    entry.barrier().completeExceptionally(lastFailure);
+                } else if (rejectedSinceBarrier > 0) {
+                    entry.barrier().completeExceptionally(new RepositoryException(
+                            rejectedSinceBarrier + " écriture(s) écartée(s) après des échecs répétés"));
+                    rejectedSinceBarrier = 0;
+                } else {
+                    entry.barrier().complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rejoue un lot en échec écriture par écriture, dans l'ordre, pour isoler celles qui échouent.
+     * Les écritures encore en échec sont gardées dans {@code unwritten}, ou écartées si la base
+     * en accepte d'autres ou après {@value #MAX_REPLAYS} reprises.
+     *
+     * @return nombre d'écritures écartées
+     */
+    private int replayOneByOne(List<VehicleMutation> mutations) {
+        List<VehicleMutation> failing = new ArrayList<>();
+        boolean anyWritten = false;
+        for (VehicleMutation mutation : mutations) {
+            try {
+                vehicleDao.applyBatch(List.of(mutation));
+                written.increment();
+                batches.increment();
+                replays.remove(mutation);
+                anyWritten = true;
+            } catch (RepositoryException e) {
+                failing.add(mutation);
+            }
+        }
+        int rejected = 0;
+        for (VehicleMutation mutation : failing) {
+            int attempts = replays.merge(mutation, 1, Integer::sum);
+            if (anyWritten || attempts >= MAX_REPLAYS) {
+                replays.remove(mutation);
+                deadLetter(mutation);
+                rejected++;
+            } else {
+                unwritten.add(mutation);
+            }
+        }
+        return rejected;
+    }
+
+    private void deadLetter(VehicleMutation mutation) {
+        deadLettered.increment();
+        synchronized (deadLetters) {
+            if (deadLetters.size() >= capacity) {
+                deadLetters.removeFirst();
+            }
+            deadLetters.add(mutation);
+        }
+        System.err.println("Écriture écartée après des échecs répétés : " + mutation);
+    }
+
+    /**
+     * @return les dernières écritures écartées, au plus la capacité de la file, la plus ancienne en premier
+     */
+    public List<VehicleMutation> deadLetters() {
+        synchronized (deadLetters) {
+            return List.copyOf(deadLetters);
+        }
+    }
+
+    /**
+     * @return {@code null} si le lot est appliqué, sinon l'erreur de la dernière tentative
+     */
+    private RepositoryException applyWithRetry(List<VehicleMutation> mutations) {
+        // une interruption (arrêt en cours) ne doit pas faire échouer les tentatives : elle est rétablie à la fin
+        boolean interrupted = false;
+        RepositoryException failure = null;
+        try {
+            long backoff = FIRST_BACKOFF_MILLIS;
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                interrupted |= Thread.interrupted();
+                try {
+                    vehicleDao.applyBatch(mutations);
+                    written.add(mutations.size());
+                    batches.increment();
+                    return null;
+                } catch (RepositoryException e) {
+                    failure = e;
+                    System.err.println("Échec de l'écriture groupée (tentative " + attempt + ") : " + e.getMessage());
+                }
+                if (attempt < MAX_ATTEMPTS) {
+                    interrupted |= pause(backoff);
+                    backoff *= 2;
+                }
+            }
+            return failure;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Attend sans se laisser interrompre.
+     *
+     * @return {@code true} si le thread a été interrompu pendant l'attente
+     */
+    private static boolean pause(long millis) {
+        boolean interrupted = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long remaining = millis; remaining > 0;
+             remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) {
+            try {
+                Thread.sleep(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
+    public Stats stats() {
+        return new Stats(
+                queue.size(),
+                capacity,
+                enqueued.sum(),
+                written.sum(),
+                batches.sum(),
+                failed.sum(),
+                unwrittenCount,
+                deadLettered.sum(),
+                blockedPuts.sum(),
+                blockedNanos.get() / 1e6
+        );
+    }
+
+    /**
+     * Applique les écritures en attente puis attend la fin de la tâche d'écriture.
+     *
+     * @throws RepositoryException si des écritures n'ont pas pu être appliquées : elles sont perdues
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RepositoryException e) {
+            // la tâche d'écriture fait une dernière tentative avant de s'arrêter
+        }
+        // la tâche d'écriture voit la fermeture à sa prochaine attente, vide la file puis se termine
+        closed = true;
+        synchronized (room) {
+            room.notifyAll();
+        }
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Arrêt de la file d'écriture : " + e.getCause().getMessage());
+        }
+        if (unwrittenCount > 0) {
+            throw new RepositoryException(unwrittenCount + " écriture(s) perdue(s) à la fermeture : "
+                    + lastFailure.getMessage());
+        }
+    }
+}
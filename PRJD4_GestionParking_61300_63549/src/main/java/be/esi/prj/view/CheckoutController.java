@@ -1,9 +1,13 @@
 package be.esi.prj.view;
 
+import be.esi.prj.model.ExecutionService;
+import be.esi.prj.model.Metrics;
+import be.esi.prj.model.PlateNormalizer;
 import be.esi.prj.model.PlateScanner;
 import be.esi.prj.model.ParkingTicket;
 import be.esi.prj.model.ParkingFeeCalculator;
 import be.esi.prj.model.dto.VehicleDto;
+import be.esi.prj.model.repository.PlateMatch;
 import be.esi.prj.model.repository.VehicleRepository;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -12,6 +16,7 @@ import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.input.DragEvent;
@@ -24,6 +29,10 @@ import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 
 public class CheckoutController {
@@ -35,10 +44,18 @@ public class CheckoutController {
     @FXML private TextField departureField;
     @FXML private Label feeLabel;
 
+    private static final Metrics.Histogram EXITS = Metrics.histogram("gate_transaction_seconds", "type", "exit");
+
     private final PlateScanner plateScanner     = new PlateScanner();
-    private final VehicleRepository repository  = new VehicleRepository();
+    private final VehicleRepository repository  = VehicleRepository.getInstance();
     private final DateTimeFormatter FMT         = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    /** Plaque lue, ticket retrouvé et plaques proches à confirmer, passés du thread io au thread JavaFX. */
+    private record TicketLookup(String plate, Optional<ParkingTicket> ticket, List<String> candidates) {
+    }
+
+    /** Dernière mise à jour du ticket : la sortie n'est écrite qu'après elle. */
+    private CompletableFuture<Void> pendingSave = CompletableFuture.completedFuture(null);
     private LocalDateTime plannedExitTime;
     private ParkingTicket currentTicket;
     private File selectedImageFile;
@@ -90,36 +107,79 @@ public class CheckoutController {
     public void scanTicket(ActionEvent event) {
         if (selectedImageFile == null) return;
 
-        plateScanner.ocrAsync(
-                selectedImageFile,
-                rawResult -> {
-                    String cleaned = rawResult.replaceAll("[^A-Z0-9\\-]", "").toUpperCase();
-                    Platform.runLater(() -> {
-                        detectedPlateLabel.setText(cleaned);
-                        try {
-                            currentTicket = repository.findTicketByPlate(cleaned)
-                                    .orElseThrow(() -> new IllegalArgumentException("Aucun ticket pour cette plaque"));
-                            entryTimeLabel.setText(currentTicket.entryTime().format(FMT));
-                            LocalDateTime exit = currentTicket.exitTime();
-                            if (exit != null) {
-                                plannedExitTime = exit;
-                                plannedExitLabel.setText(exit.format(FMT));
-                            } else {
-                                plannedExitTime = null;
-                                plannedExitLabel.setText("");
-                            }
-                            departureField.setText(LocalDateTime.now().format(FMT));
-                        } catch (Exception ex) {
-                            detectedPlateLabel.setText("Erreur ticket : " + ex.getMessage());
-                            currentTicket = null;
-                        }
-                    });
-                },
-                error -> Platform.runLater(() -> {
-                    detectedPlateLabel.setText("Erreur OCR");
+        // la recherche du ticket attend la fin du chargement du cache : elle est faite sur un thread io
+        plateScanner.scan(selectedImageFile).thenApplyAsync(rawResult -> {
+            String cleaned = PlateNormalizer.normalize(rawResult);
+            Optional<ParkingTicket> ticket = repository.findTicketByPlate(cleaned);
+            List<String> candidates = ticket.isPresent() ? List.of() : repository.findTicketCandidates(cleaned).stream()
+                    .map(PlateMatch::plateNumber)
+                    .toList();
+            return new TicketLookup(cleaned, ticket, candidates);
+        }, ExecutionService.getInstance().io()).whenComplete((result, error) -> {
+            if (error != null) {
+                Platform.runLater(() -> {
+                    detectedPlateLabel.setText("Erreur lecture : " + causeOf(error).getMessage());
                     error.printStackTrace();
-                })
-        );
+                });
+                return;
+            }
+            Platform.runLater(() -> {
+                if (result.ticket().isPresent()) {
+                    showTicket(result.plate(), result.ticket().get());
+                } else if (!result.candidates().isEmpty()) {
+                    confirmCandidate(result.plate(), result.candidates());
+                } else {
+                    currentTicket = null;
+                    detectedPlateLabel.setText("Erreur ticket : Aucun ticket pour cette plaque");
+                }
+            });
+        });
+    }
+
+    /**
+     * Lecture à un caractère près : l'agent choisit la plaque du véhicule, qui peut être celle
+     * d'un autre client ; rien n'est retenu sans sa confirmation.
+     */
+    private void confirmCandidate(String cleaned, List<String> candidates) {
+        currentTicket = null;
+        detectedPlateLabel.setText(cleaned);
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(candidates.getFirst(), candidates);
+        dialog.setTitle("Plaque à confirmer");
+        dialog.setHeaderText("Aucun ticket pour " + cleaned + ". Plaques proches présentes :");
+        dialog.setContentText("Plaque du véhicule :");
+        Optional<String> chosen = dialog.showAndWait();
+        if (chosen.isEmpty()) {
+            detectedPlateLabel.setText("Erreur ticket : Aucun ticket pour cette plaque");
+            return;
+        }
+        ExecutionService.getInstance().io().supplyAsync(() -> repository.findTicketByPlate(chosen.get()))
+                .whenComplete((ticket, error) -> Platform.runLater(() -> {
+                    if (error != null || ticket.isEmpty()) {
+                        detectedPlateLabel.setText("Erreur ticket : "
+                                + (error != null ? causeOf(error).getMessage() : "Aucun ticket pour cette plaque"));
+                        return;
+                    }
+                    showTicket(cleaned, ticket.get());
+                }));
+    }
+
+    private void showTicket(String cleaned, ParkingTicket ticket) {
+        currentTicket = ticket;
+        detectedPlateLabel.setText(cleaned);
+        if (!ticket.plateNumber().equalsIgnoreCase(cleaned)) {
+            // lecture approximative : la plaque du ticket retenu est affichée
+            detectedPlateLabel.setText(cleaned + " → " + ticket.plateNumber());
+        }
+        entryTimeLabel.setText(ticket.entryTime().format(FMT));
+        LocalDateTime exit = ticket.exitTime();
+        if (exit != null) {
+            plannedExitTime = exit;
+            plannedExitLabel.setText(exit.format(FMT));
+        } else {
+            plannedExitTime = null;
+            plannedExitLabel.setText("");
+        }
+        departureField.setText(LocalDateTime.now().format(FMT));
     }
 
     /** Calculer le tarif de manière asynchrone **/
@@ -154,7 +214,13 @@ public class CheckoutController {
                 currentTicket.entryTime(),
                 actual
         );
-        repository.save(updated);
+        // écriture en base hors du thread JavaFX
+        pendingSave = pendingSave
+                .thenCompose(ignored -> ExecutionService.getInstance().io().runAsync(() -> repository.save(updated)))
+                .exceptionally(ex -> {
+                    Platform.runLater(() -> feeLabel.setText("Erreur sauvegarde : " + causeOf(ex).getMessage()));
+                    return null;
+                });
         currentTicket = new ParkingTicket(
                 currentTicket.id(),
                 currentTicket.plateNumber(),
@@ -176,23 +242,42 @@ public class CheckoutController {
             return;
         }
 
-        repository.delete(currentTicket.id());
-
+        // de la validation au reçu calculé : archivage (thread io) puis tarification
+        long start = System.nanoTime();
+        ParkingTicket ticket = currentTicket;
+        currentTicket = null; // une seule sortie par ticket, même sur un double clic
         LocalDateTime usedExit = (plannedExitTime != null) ? plannedExitTime : actual;
-        ParkingFeeCalculator.getExitSummaryAsync(
-                currentTicket.entryTime(),
-                usedExit,
-                actual,
-                summary -> Platform.runLater(() -> {
-                    new Alert(Alert.AlertType.INFORMATION,
-                            "Véhicule sorti le " + actual.format(FMT)
-                    ).showAndWait();
-                    MainController.goToReceipt(event, summary);
-                    currentTicket = null;
-                    selectedImageFile = null;
-                }),
-                ex -> Platform.runLater(() -> feeLabel.setText("Erreur sortie"))
-        );
+        feeLabel.setText("Sortie en cours...");
+        // après la mise à jour en cours : sinon elle recréerait la ligne tout juste archivée
+        pendingSave.thenCompose(ignored -> ExecutionService.getInstance().io()
+                        .runAsync(() -> repository.checkout(ticket.id(), actual)))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        Platform.runLater(() -> {
+                            currentTicket = ticket;
+                            feeLabel.setText("Erreur sortie : " + causeOf(error).getMessage());
+                        });
+                        return;
+                    }
+                    ParkingFeeCalculator.getExitSummaryAsync(
+                            ticket.entryTime(),
+                            usedExit,
+                            actual,
+                            summary -> Platform.runLater(() -> {
+                                EXITS.recordSince(start);
+                                new Alert(Alert.AlertType.INFORMATION,
+                                        "Véhicule sorti le " + actual.format(FMT)
+                                ).showAndWait();
+                                MainController.goToReceipt(event, summary);
+                                selectedImageFile = null;
+                            }),
+                            ex -> Platform.runLater(() -> feeLabel.setText("Erreur sortie"))
+                    );
+                });
+    }
+
+    private static Throwable causeOf(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /** Retour au menu principal **/
@@ -1,7 +1,9 @@
 package be.esi.prj.view;
 
+import be.esi.prj.model.ExecutionService;
+import be.esi.prj.model.Metrics;
+import be.esi.prj.model.PlateNormalizer;
 import be.esi.prj.model.PlateScanner;
-import be.esi.prj.model.dto.VehicleDto;
 import be.esi.prj.model.repository.VehicleRepository;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -21,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletionException;
 
 /**
  * Contrôleur pour scanner et enregistrer un ticket via OCR.
@@ -37,8 +40,10 @@ public class ScanTicketController {
     @FXML
     private TextField exitTimeField;
 
+    private static final Metrics.Histogram ENTRIES = Metrics.histogram("gate_transaction_seconds", "type", "entry");
+
     private final PlateScanner plateScanner  = new PlateScanner();
-    private final VehicleRepository repository = new VehicleRepository();
+    private final VehicleRepository repository = VehicleRepository.getInstance();
     private File selectedImageFile;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
@@ -101,25 +106,23 @@ public class ScanTicketController {
             System.out.println("Aucune image sélectionnée !");
             return;
         }
-        plateScanner.ocrAsync(
-                selectedImageFile,
-                raw -> {
-                    String cleaned = raw.replaceAll("[^A-Z0-9\\-]", "").toUpperCase();
-                    Platform.runLater(() -> {
-                        plateNumberField.setText(cleaned);
-                        entryTimeField.setText(LocalDateTime.now().format(FORMATTER));
-                        exitTimeField.setText(LocalDateTime.now().format(FORMATTER));
-                    });
-                },
-                err -> {
-                    Platform.runLater(() -> {
-                        plateNumberField.clear();
-                        entryTimeField.clear();
-                        exitTimeField.clear();
-                    });
-                    err.printStackTrace();
-                }
-        );
+        plateScanner.scan(selectedImageFile).whenComplete((raw, err) -> {
+            if (err != null) {
+                Platform.runLater(() -> {
+                    plateNumberField.clear();
+                    entryTimeField.clear();
+                    exitTimeField.clear();
+                });
+                err.printStackTrace();
+                return;
+            }
+            String cleaned = PlateNormalizer.normalize(raw);
+            Platform.runLater(() -> {
+                plateNumberField.setText(cleaned);
+                entryTimeField.setText(LocalDateTime.now().format(FORMATTER));
+                exitTimeField.setText(LocalDateTime.now().format(FORMATTER));
+            });
+        });
     }
 
     /** Enregistre le ticket en base **/
@@ -132,32 +135,41 @@ public class ScanTicketController {
             System.out.println("Champs vides !");
             return;
         }
+        LocalDateTime in;
+        LocalDateTime out;
         try {
-            boolean exists = repository.findAll().stream()
-                    .anyMatch(v -> v.plateNumber().equalsIgnoreCase(plate));
-            if (exists) {
-                new Alert(Alert.AlertType.ERROR,
-                        "Ce véhicule est déjà présent dans le parking.").showAndWait();
-                return;
-            }
-            LocalDateTime in = LocalDateTime.parse(inStr, FORMATTER);
-            LocalDateTime out= LocalDateTime.parse(outStr, FORMATTER);
-            VehicleDto vehicle = new VehicleDto(
-                    repository.getMaxVehicleId()+1,
-                    plate, in, out
-            );
-            int id = repository.save(vehicle);
-            if (id != -1) {
-                new Alert(Alert.AlertType.INFORMATION,
-                        "Véhicule enregistré avec succès !").showAndWait();
-                plateNumberField.clear();
-                entryTimeField.clear();
-                exitTimeField.clear();
-            }
+            in = LocalDateTime.parse(inStr, FORMATTER);
+            out= LocalDateTime.parse(outStr, FORMATTER);
         } catch (Exception e) {
-            e.printStackTrace();
             new Alert(Alert.AlertType.ERROR,
                     "Erreur lors de la sauvegarde : " + e.getMessage()).showAndWait();
+            return;
         }
+        // l'enregistrement attend la fin du chargement du cache : jamais sur le thread JavaFX
+        Node saveButton = (Node) event.getSource();
+        saveButton.setDisable(true);
+        long start = System.nanoTime();
+        ExecutionService.getInstance().io().supplyAsync(() -> repository.registerEntry(plate, in, out))
+                .whenComplete((id, error) -> Platform.runLater(() -> {
+                    saveButton.setDisable(false);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        cause.printStackTrace();
+                        new Alert(Alert.AlertType.ERROR,
+                                "Erreur lors de la sauvegarde : " + cause.getMessage()).showAndWait();
+                        return;
+                    }
+                    ENTRIES.recordSince(start);
+                    if (id == -1) {
+                        new Alert(Alert.AlertType.ERROR,
+                                "Ce véhicule est déjà présent dans le parking.").showAndWait();
+                        return;
+                    }
+                    new Alert(Alert.AlertType.INFORMATION,
+                            "Véhicule enregistré avec succès !").showAndWait();
+                    plateNumberField.clear();
+                    entryTimeField.clear();
+                    exitTimeField.clear();
+                }));
     }
 }
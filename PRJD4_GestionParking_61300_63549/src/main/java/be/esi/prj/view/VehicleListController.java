@@ -1,30 +1,50 @@
 package be.esi.prj.view;
 
+import be.esi.prj.model.ExecutionService;
 import be.esi.prj.model.dto.VehicleDto;
+import be.esi.prj.model.repository.VehicleChangeEvent;
+import be.esi.prj.model.repository.VehicleChangeListener;
+import be.esi.prj.model.repository.VehiclePageRequest;
 import be.esi.prj.model.repository.VehicleRepository;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Liste des véhicules présents, tenue à jour par les événements du repository.
+ * Les modifications reçues sont regroupées et appliquées ligne par ligne sur le thread JavaFX,
+ * au plus une fois par pulsation, sans recharger la table entière.
+ * <p>
+ * En mode historique, la table affiche les pages lues en base (filtres et tri appliqués par la base),
+ * chargées au fil du défilement et plafonnées à {@link #MAX_HISTORY_ROWS} lignes.
+ */
 public class VehicleListController {
 
     @FXML
@@ -35,11 +55,37 @@ public class VehicleListController {
     private TableColumn<VehicleDto, String> timeColumn;
     @FXML
     private TableColumn<VehicleDto, String> exitColumn;
+    @FXML
+    private ToggleButton historyToggle;
+    @FXML
+    private TextField plateFilterField;
+    @FXML
+    private DatePicker fromDatePicker;
+    @FXML
+    private DatePicker toDatePicker;
+    @FXML
+    private Label statusLabel;
 
-    private final VehicleRepository vehicleRepo = new VehicleRepository();
+    private final VehicleRepository vehicleRepo = VehicleRepository.getInstance();
     private final ObservableList<VehicleDto> vehicleData = FXCollections.observableArrayList();
+    /** Position de chaque véhicule dans {@code vehicleData}, par identifiant. */
+    private final Map<Integer, Integer> rowIndex = new HashMap<>();
+    private final Queue<VehicleChangeEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+    /** Lecture initiale affichée : les événements reçus avant restent en file jusque-là. Thread JavaFX. */
+    private boolean snapshotLoaded;
+    private final VehicleChangeListener changeListener = this::onVehicleChanged;
+    private SortedList<VehicleDto> liveData;
+
+    private final ObservableList<VehicleDto> historyData = FXCollections.observableArrayList();
+    private VehiclePageRequest nextPageRequest;
+    private boolean pageLoading;
+    private long historyGeneration;
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int PAGE_SIZE = 200;
+    private static final int PREFETCH_ROWS = 50;
+    private static final int MAX_HISTORY_ROWS = 5_000;
 
     @FXML
     public void initialize() {
@@ -58,33 +104,190 @@ public class VehicleListController {
             return new SimpleStringProperty(text);
         });
 
-        vehicleTable.setItems(vehicleData);
+        // le tri de la table s'applique à une vue triée, vehicleData garde son ordre d'insertion
+        liveData = new SortedList<>(vehicleData);
+        liveData.comparatorProperty().bind(vehicleTable.comparatorProperty());
+        vehicleTable.setItems(liveData);
 
-        refreshVehicleData();
+        // en historique, l'affichage des dernières lignes déclenche la lecture de la page suivante
+        vehicleTable.setRowFactory(table -> new TableRow<>() {
+            @Override
+            protected void updateItem(VehicleDto item, boolean empty) {
+                super.updateItem(item, empty);
+                if (!empty && isHistoryMode() && getIndex() >= historyData.size() - PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+        // en historique, le tri est fait par la base : on relit depuis la première page
+        vehicleTable.setOnSort(event -> {
+            if (isHistoryMode()) {
+                event.consume();
+                reloadHistory();
+            }
+        });
 
-        Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(5), e -> refreshVehicleData()));
-        timeline.setCycleCount(Animation.INDEFINITE);
-        timeline.play();
+        // abonnement avant la lecture initiale : les événements concurrents seront rejoués ensuite ;
+        // la lecture (cache, ou base si le cache est partiel) se fait sur un thread io, seules les lignes
+        // lues sont confiées au thread JavaFX
+        vehicleRepo.addListener(changeListener);
+        vehicleRepo.ready()
+                .thenCompose(ignored -> ExecutionService.getInstance().io().supplyAsync(vehicleRepo::findAll))
+                .whenComplete((vehicles, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        statusLabel.setText("Lecture des véhicules impossible");
+                    } else {
+                        vehicles.forEach(this::upsertRow);
+                    }
+                    snapshotLoaded = true;
+                    applyPendingEvents();
+                }));
     }
 
-    private void refreshVehicleData() {
-        Thread fetchThread = new Thread(() -> {
-            List<VehicleDto> allVehicles = vehicleRepo.findAll();
-
-            System.out.println("Total véhicules dans le cache : " + allVehicles.size());
-            allVehicles.forEach(v -> System.out.println(
-                    "- " + v.plateNumber() + " | Entry: " + v.entryTime() + " | Exit: " + v.exitTime()
-            ));
+    /** Appelé sur le thread de la modification : met l'événement en file et planifie son application. */
+    private void onVehicleChanged(VehicleChangeEvent event) {
+        pendingEvents.add(event);
+        if (applyScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::applyPendingEvents);
+        }
+    }
 
-            Platform.runLater(() -> vehicleData.setAll(allVehicles));
+    /** Applique sur le thread JavaFX l'état final de chaque véhicule modifié depuis la dernière pulsation. */
+    private void applyPendingEvents() {
+        applyScheduled.set(false);
+        if (!snapshotLoaded) {
+            return;
+        }
+        Map<Integer, VehicleDto> latest = new LinkedHashMap<>();
+        VehicleChangeEvent event;
+        while ((event = pendingEvents.poll()) != null) {
+            latest.put(event.id(), event.current());
+        }
+        latest.forEach((id, current) -> {
+            if (current == null) {
+                removeRow(id);
+            } else {
+                upsertRow(current);
+            }
         });
+    }
+
+    private void upsertRow(VehicleDto vehicle) {
+        Integer index = rowIndex.get(vehicle.id());
+        if (index != null) {
+            vehicleData.set(index, vehicle);
+        } else {
+            rowIndex.put(vehicle.id(), vehicleData.size());
+            vehicleData.add(vehicle);
+        }
+    }
 
-        fetchThread.setDaemon(true);
-        fetchThread.start();
+    /** Retire une ligne en la remplaçant par la dernière, pour ne décaler aucun index. */
+    private void removeRow(int id) {
+        Integer index = rowIndex.remove(id);
+        if (index == null) {
+            return;
+        }
+        int lastIndex = vehicleData.size() - 1;
+        VehicleDto last = vehicleData.remove(lastIndex);
+        if (index != lastIndex) {
+            vehicleData.set(index, last);
+            rowIndex.put(last.id(), index);
+        }
+    }
+
+    private boolean isHistoryMode() {
+        return historyToggle.isSelected();
+    }
+
+    /** Bascule entre les véhicules présents et l'historique paginé. */
+    @FXML
+    public void toggleHistory(ActionEvent event) {
+        if (isHistoryMode()) {
+            vehicleTable.setItems(historyData);
+            reloadHistory();
+        } else {
+            historyGeneration++;
+            historyData.clear();
+            nextPageRequest = null;
+            statusLabel.setText("");
+            vehicleTable.setItems(liveData);
+        }
+    }
+
+    /** Applique les filtres : passe en mode historique si nécessaire. */
+    @FXML
+    public void applyFilter(ActionEvent event) {
+        if (!isHistoryMode()) {
+            historyToggle.setSelected(true);
+            vehicleTable.setItems(historyData);
+        }
+        reloadHistory();
+    }
+
+    private void reloadHistory() {
+        historyGeneration++;
+        historyData.clear();
+        pageLoading = false;
+        nextPageRequest = buildPageRequest();
+        loadNextPage();
+    }
+
+    private VehiclePageRequest buildPageRequest() {
+        VehiclePageRequest.SortKey sortKey = VehiclePageRequest.SortKey.ENTRY_TIME;
+        boolean descending = true;
+        if (!vehicleTable.getSortOrder().isEmpty()) {
+            TableColumn<VehicleDto, ?> column = vehicleTable.getSortOrder().get(0);
+            sortKey = column == plateColumn ? VehiclePageRequest.SortKey.PLATE
+                    : column == timeColumn ? VehiclePageRequest.SortKey.ENTRY_TIME
+                    : VehiclePageRequest.SortKey.ID;
+            descending = column.getSortType() == TableColumn.SortType.DESCENDING;
+        }
+        LocalDate from = fromDatePicker.getValue();
+        LocalDate to = toDatePicker.getValue();
+        return new VehiclePageRequest(
+                plateFilterField.getText(),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                sortKey,
+                descending,
+                PAGE_SIZE,
+                null
+        );
+    }
+
+    /** Lit la page suivante hors du thread JavaFX ; ignorée si une lecture est en cours ou si tout est chargé. */
+    private void loadNextPage() {
+        if (pageLoading || nextPageRequest == null) {
+            return;
+        }
+        if (historyData.size() >= MAX_HISTORY_ROWS) {
+            statusLabel.setText(historyData.size() + " lignes affichées, affinez les filtres pour voir la suite");
+            return;
+        }
+        pageLoading = true;
+        long generation = historyGeneration;
+        VehiclePageRequest request = nextPageRequest;
+        statusLabel.setText("Chargement...");
+        ExecutionService.getInstance().io().supplyAsync(() -> vehicleRepo.findPage(request))
+                .whenComplete((page, error) -> Platform.runLater(() -> {
+                    if (generation != historyGeneration) {
+                        return;
+                    }
+                    pageLoading = false;
+                    if (error != null) {
+                        statusLabel.setText("Erreur de chargement de l'historique");
+                        return;
+                    }
+                    historyData.addAll(page.rows());
+                    nextPageRequest = page.hasMore() ? page.nextRequest(request) : null;
+                    statusLabel.setText(historyData.size() + " lignes" + (nextPageRequest != null ? "..." : ""));
+                }));
     }
 
     @FXML
     public void goBack(ActionEvent event) {
+        vehicleRepo.removeListener(changeListener);
         switchScene(event, "fxml/MainView.fxml");
     }
 
@@ -8,6 +8,7 @@ module be.esi.prj {
     requires opencv;
     requires javafx.graphics;
     requires java.desktop;
+    requires jdk.httpserver;
 
 
     exports be.esi.prj;
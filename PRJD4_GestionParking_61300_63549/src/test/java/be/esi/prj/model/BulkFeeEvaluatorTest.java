@@ -0,0 +1,76 @@
+package be.esi.prj.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkFeeEvaluatorTest {
+
+    @AfterEach
+    void tearDown() {
+        ExecutionService.shutdown();
+    }
+
+    private static Map<String, Tariff> tariffs() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = BulkFeeEvaluatorTest.class.getClassLoader().getResourceAsStream("tariff.properties")) {
+            properties.load(input);
+        }
+        properties.setProperty("tariff.lots", "default,centre");
+        return TariffEngine.parse(properties);
+    }
+
+    private static Stays randomStays(int count) {
+        Random random = new Random(42);
+        long start = Stays.epochMinute(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Stays.Builder builder = new Stays.Builder(count);
+        for (int i = 0; i < count; i++) {
+            long entry = start + random.nextInt(90 * Tariff.MINUTES_PER_DAY);
+            long exit = entry + random.nextInt(3 * Tariff.MINUTES_PER_DAY);
+            builder.add(entry, exit, exit + (random.nextBoolean() ? 0 : random.nextInt(2 * Tariff.MINUTES_PER_DAY)));
+        }
+        return builder.build();
+    }
+
+    @Test
+    void evaluate_shouldMatchSequentialPricing() throws IOException {
+        Tariff tariff = tariffs().get("default");
+        Stays stays = randomStays(100_000);
+
+        BulkFeeEvaluator.Result result = BulkFeeEvaluator.evaluate(tariff, stays);
+
+        long total = 0;
+        for (int i = 0; i < stays.size(); i++) {
+            long fee = tariff.feeCents(stays.entry()[i], stays.exit()[i], stays.departure()[i]);
+            assertEquals(fee, result.feesCents()[i]);
+            total += fee;
+        }
+        assertEquals(total, result.totalCents());
+        assertEquals(stays.size(), result.count());
+        ExecutionService.PoolStats forkJoin = ExecutionService.getInstance().stats().stream()
+                .filter(pool -> pool.name().equals("fork-join"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, forkJoin.completed());
+    }
+
+    @Test
+    void compare_shouldReportDeltaBetweenTariffs() throws IOException {
+        Map<String, Tariff> tariffs = tariffs();
+        Stays stays = randomStays(50_000);
+
+        BulkFeeEvaluator.Comparison comparison =
+                BulkFeeEvaluator.compare(tariffs.get("default"), tariffs.get("centre"), stays);
+
+        assertEquals(comparison.proposed().totalCents() - comparison.current().totalCents(), comparison.deltaCents());
+        assertTrue(comparison.proposed().freeStays() > 0);
+    }
+}
@@ -0,0 +1,77 @@
+package be.esi.prj.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionServiceTest {
+
+    @AfterEach
+    void shutdown() {
+        ExecutionService.shutdown();
+    }
+
+    @Test
+    void pools_shouldRunTasksAndReportMetrics() {
+        ExecutionService service = ExecutionService.getInstance();
+
+        boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), service.io()).join();
+        boolean daemon = CompletableFuture.supplyAsync(() -> Thread.currentThread().isDaemon(), service.compute()).join();
+
+        assertTrue(virtual);
+        assertTrue(daemon);
+        ExecutionService.PoolStats io = service.stats().stream()
+                .filter(stats -> stats.name().equals("io")).findFirst().orElseThrow();
+        assertTrue(io.virtual());
+        assertEquals(1, io.completed());
+    }
+
+    @Test
+    void pools_shouldCountFailuresKeptInFutures() {
+        ExecutionService.Pool compute = ExecutionService.getInstance().compute();
+
+        Future<?> submitted = compute.submit(() -> {
+            throw new IllegalStateException("échec");
+        });
+        CompletableFuture<Object> supplied = compute.supplyAsync(() -> {
+            throw new IllegalStateException("échec");
+        });
+
+        assertThrows(ExecutionException.class, submitted::get);
+        assertThrows(CompletionException.class, supplied::join);
+        assertEquals(2, compute.stats().failed());
+    }
+
+    @Test
+    void scheduledPool_shouldRunDelayedTasksOnDaemonThreads() {
+        ExecutionService service = ExecutionService.getInstance();
+        CompletableFuture<String> thread = new CompletableFuture<>();
+
+        service.scheduledPool("test-timer", 1)
+                .schedule(() -> thread.complete(Thread.currentThread().getName()), 10, TimeUnit.MILLISECONDS);
+
+        assertEquals("test-timer-1", thread.join());
+        assertThrows(UnsupportedOperationException.class,
+                () -> service.compute().schedule(() -> { }, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shutdown_shouldRejectNewTasks() {
+        ExecutionService.Pool compute = ExecutionService.getInstance().compute();
+        assertTrue(Metrics.prometheus().contains("pool_active_tasks{pool=\"compute\"}"));
+
+        ExecutionService.shutdown();
+
+        assertTrue(compute.isShutdown());
+        assertThrows(RejectedExecutionException.class, () -> compute.execute(() -> { }));
+        assertFalse(Metrics.prometheus().contains("pool_active_tasks{pool=\"compute\"}"));
+    }
+}
@@ -0,0 +1,42 @@
+package be.esi.prj.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void histogram_shouldReportPercentilesWithinBucketPrecision() {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        for (long millis = 1; millis <= 1_000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+
+        Metrics.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000, snapshot.count());
+        assertEquals(500.5, snapshot.meanMillis(), 1e-9);
+        assertEquals(500, snapshot.p50Millis(), 500 / (double) Metrics.Histogram.SUB_BUCKETS);
+        assertEquals(990, snapshot.p99Millis(), 990 / (double) Metrics.Histogram.SUB_BUCKETS);
+        assertEquals(1_000, snapshot.maxMillis(), 1e-9);
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            int index = Metrics.Histogram.index(value);
+            assertTrue(value <= Metrics.Histogram.upperBound(index));
+            assertTrue(index == 0 || value > Metrics.Histogram.upperBound(index - 1));
+        }
+    }
+
+    @Test
+    void prometheus_shouldRenderCountersAndSummaries() {
+        Metrics.counter("test_events_total", "kind", "a").add(3);
+        Metrics.histogram("test_latency_seconds", "step", "read").record(2_000_000);
+
+        String text = Metrics.prometheus();
+
+        assertTrue(text.contains("# TYPE test_events_total counter\ntest_events_total{kind=\"a\"} 3\n"));
+        assertTrue(text.contains("# TYPE test_latency_seconds summary\n"));
+        assertTrue(text.contains("test_latency_seconds{step=\"read\",quantile=\"0.5\"} 0.00200000000\n"));
+        assertTrue(text.contains("test_latency_seconds_count{step=\"read\"} 1\n"));
+    }
+}
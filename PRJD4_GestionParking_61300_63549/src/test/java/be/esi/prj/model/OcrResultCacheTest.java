@@ -0,0 +1,50 @@
+package be.esi.prj.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static String key(String content) {
+        return OcrResultCache.key(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsedFromMemory() {
+        OcrResultCache cache = new OcrResultCache(new OcrResultCache.Config(2, null, 0));
+        cache.put(key("a"), new PlateReading("1-AAA-111", null, Map.of()));
+        cache.put(key("b"), new PlateReading("1-BBB-222", null, Map.of()));
+        cache.get(key("a"));
+
+        cache.put(key("c"), new PlateReading("1-CCC-333", null, Map.of()));
+
+        assertTrue(cache.get(key("a")).isPresent());
+        assertTrue(cache.get(key("b")).isEmpty());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void get_shouldReloadFromDiskAfterRestart() {
+        Rectangle region = new Rectangle(10, 20, 120, 30);
+        new OcrResultCache(new OcrResultCache.Config(4, directory, 4))
+                .put(key("ticket"), new PlateReading("1-ABC-123", region, Map.of("ocr", 900.0)));
+
+        OcrResultCache restarted = new OcrResultCache(new OcrResultCache.Config(4, directory, 4));
+        PlateReading reading = restarted.get(key("ticket")).orElseThrow();
+
+        assertEquals("1-ABC-123", reading.text());
+        assertEquals(region, reading.region());
+        assertEquals(1, restarted.stats().diskHits());
+    }
+}
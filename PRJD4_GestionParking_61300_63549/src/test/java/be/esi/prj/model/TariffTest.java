@@ -0,0 +1,60 @@
+package be.esi.prj.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffTest {
+
+    private static Properties bundled() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = TariffTest.class.getClassLoader().getResourceAsStream("tariff.properties")) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    @Test
+    void defaultTariff_shouldMatchHourlyDailyAndLateRules() throws IOException {
+        Tariff tariff = TariffEngine.parse(bundled()).get("default");
+        LocalDateTime entry = LocalDateTime.of(2024, 3, 4, 8, 0);
+
+        // 1 h 30 : deux heures commencées
+        assertEquals(400, tariff.feeCents(entry, entry.plusMinutes(90), entry.plusMinutes(90)));
+        // 25 h : deux journées commencées
+        assertEquals(3000, tariff.feeCents(entry, entry.plusHours(25), entry.plusHours(25)));
+        // 13 h 30 de retard : une période de 12 h complète
+        LocalDateTime exit = entry.plusHours(2);
+        assertEquals(400 + 1000, tariff.feeCents(entry, exit, exit.plusMinutes(810)));
+    }
+
+    @Test
+    void bands_shouldApplyTimeOfDayWeekendGraceAndCap() throws IOException {
+        Properties properties = bundled();
+        properties.setProperty("tariff.lots", "centre");
+        Tariff tariff = TariffEngine.parse(properties).get("centre");
+        LocalDateTime monday = LocalDateTime.of(2024, 3, 4, 18, 0);
+        LocalDateTime saturday = LocalDateTime.of(2024, 3, 9, 18, 0);
+
+        assertEquals(0, tariff.feeCents(monday, monday.plusMinutes(15), monday.plusMinutes(15)));
+        // 18:00-19:00 en journée puis 19:00-20:00 en soirée, par demi-heure
+        assertEquals(2 * 150 + 2 * 50, tariff.feeCents(monday, monday.plusHours(2), monday.plusHours(2)));
+        assertEquals(4 * 75, tariff.feeCents(saturday, saturday.plusHours(2), saturday.plusHours(2)));
+        // 24 h en semaine : plafond journalier
+        assertEquals(2000, tariff.feeCents(monday, monday.plusHours(24), monday.plusHours(24)));
+    }
+
+    @Test
+    void parse_shouldRejectUncoveredMinutes() {
+        Properties properties = new Properties();
+        properties.setProperty("tariff.lots", "trou");
+        properties.setProperty("tariff.trou.weekday", "00:00-12:00=100,12:30-24:00=100");
+
+        assertThrows(IllegalArgumentException.class, () -> TariffEngine.parse(properties));
+    }
+}
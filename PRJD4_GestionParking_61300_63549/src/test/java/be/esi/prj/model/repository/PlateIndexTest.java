@@ -0,0 +1,50 @@
+package be.esi.prj.model.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateIndexTest {
+
+    @Test
+    void search_shouldIgnoreOcrConfusions() {
+        PlateIndex index = new PlateIndex();
+        index.add("1-ABC-123");
+        index.add("2-XYZ-987");
+
+        List<PlateMatch> matches = index.search("1-A8C-l23", 0, 5);
+
+        assertEquals(1, matches.size());
+        assertEquals("1-ABC-123", matches.get(0).plateNumber());
+        assertEquals(0, matches.get(0).distance());
+    }
+
+    @Test
+    void search_shouldRankCloserPlatesFirst() {
+        PlateIndex index = new PlateIndex();
+        index.add("1-ABC-123");
+        index.add("1-ABC-124");
+        index.add("1-ABD-999");
+
+        List<PlateMatch> matches = index.search("1ABC12", 1, 5);
+
+        assertEquals(List.of("1-ABC-123", "1-ABC-124"), matches.stream().map(PlateMatch::plateNumber).toList());
+    }
+
+    @Test
+    void remove_shouldForgetPlateAndKeepOthersReachable() {
+        PlateIndex index = new PlateIndex();
+        for (int i = 100; i < 140; i++) {
+            index.add("1-ABC-" + i);
+        }
+        for (int i = 100; i < 130; i++) {
+            index.remove("1-ABC-" + i);
+        }
+
+        assertEquals(10, index.size());
+        assertTrue(index.search("1-ABC-110", 0, 5).isEmpty());
+        assertEquals("1-ABC-135", index.search("1-ABC-135", 0, 5).get(0).plateNumber());
+    }
+}
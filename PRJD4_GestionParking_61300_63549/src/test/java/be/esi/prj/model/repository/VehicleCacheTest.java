@@ -0,0 +1,90 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.dto.VehicleDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleCacheTest {
+
+    private final LocalDateTime entry = LocalDateTime.of(2023, 5, 15, 8, 30);
+    private final AtomicLong now = new AtomicLong();
+
+    private VehicleDto vehicle(int id) {
+        return new VehicleDto(id, "1-ABC-" + id, entry, null);
+    }
+
+    @Test
+    void lru_shouldEvictLeastRecentlyUsed() {
+        VehicleCache cache = new VehicleCache(new VehicleCache.Config(VehicleCache.Policy.LRU, 2, 0, 0), now::get);
+        cache.put(vehicle(1));
+        cache.put(vehicle(2));
+        cache.getOrLoad(1, id -> Optional.empty());
+
+        cache.put(vehicle(3));
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNull(cache.getByPlate("1-ABC-2"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void ttl_shouldExpireEntries() {
+        VehicleCache cache = new VehicleCache(new VehicleCache.Config(VehicleCache.Policy.TTL, 0, 1_000, 0), now::get);
+        cache.put(vehicle(1));
+
+        now.set(1_000);
+
+        assertNull(cache.get(1));
+        assertEquals(1, cache.stats().expirations());
+    }
+
+    @Test
+    void put_shouldReturnReplacedEntry_evenWhenExpired() {
+        VehicleCache cache = new VehicleCache(new VehicleCache.Config(VehicleCache.Policy.TTL, 0, 1_000, 0), now::get);
+        VehicleDto first = vehicle(1);
+        cache.put(first);
+
+        now.set(1_000);
+
+        assertEquals(first, cache.put(vehicle(1)));
+    }
+
+    @Test
+    void getOrLoad_shouldCacheHitsAndAbsences() {
+        VehicleCache cache = new VehicleCache(new VehicleCache.Config(VehicleCache.Policy.LRU, 10, 0, 500), now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getOrLoad(1, id -> { loads.incrementAndGet(); return Optional.of(vehicle(id)); });
+        cache.getOrLoad(1, id -> { loads.incrementAndGet(); return Optional.of(vehicle(id)); });
+        cache.getOrLoadByPlate("9-ZZZ-999", key -> { loads.incrementAndGet(); return Optional.empty(); });
+        cache.getOrLoadByPlate("9-ZZZ-999", key -> { loads.incrementAndGet(); return Optional.empty(); });
+        now.set(500);
+        cache.getOrLoadByPlate("9-ZZZ-999", key -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        assertEquals(3, loads.get());
+        VehicleCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.negativeHits());
+        assertEquals(3, stats.misses());
+    }
+
+    @Test
+    void findByPlate_shouldCountLookups() {
+        VehicleCache cache = new VehicleCache(VehicleCache.Config.unbounded());
+        cache.put(vehicle(1));
+
+        assertNotNull(cache.findByPlate("1-ABC-1"));
+        assertNull(cache.findByPlate("1-ABC-2"));
+
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().negativeHits());
+        assertEquals(0, cache.stats().misses());
+    }
+}
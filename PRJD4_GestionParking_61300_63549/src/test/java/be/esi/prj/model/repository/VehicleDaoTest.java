@@ -1,94 +1,84 @@
 package be.esi.prj.model.repository;
 
+import be.esi.prj.model.Stays;
 import be.esi.prj.model.dto.VehicleDto;
 import org.junit.jupiter.api.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.Date;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class VehicleDaoTest {
 
-    private static Connection connection;
+    private static Path databaseFile;
+    private static ConnectionPool pool;
     private VehicleDao instance;
 
-    private final Date testDate = java.sql.Date.valueOf(LocalDate.of(2023, 5, 15));
-    private final Time testTimeArrival = Time.valueOf(LocalTime.of(8, 30));
-    private final Time testTimeDeparture = Time.valueOf(LocalTime.of(17, 45));
+    private final LocalDateTime testEntry = LocalDateTime.of(2023, 5, 15, 8, 30);
+    private final LocalDateTime testExit = LocalDateTime.of(2023, 5, 15, 17, 45);
 
     private final VehicleDto testVehicle = new VehicleDto(
             1,
             "1-ABC-123",
-            testDate,
-            testTimeArrival,
-            testDate,
-            testTimeDeparture
+            testEntry,
+            testExit
     );
 
     @BeforeAll
-    static void setupDatabase() throws SQLException {
-        // Utilisation d'une base en mémoire pour les tests
-        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("""
-                CREATE TABLE Vehicle (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    plateNumber TEXT NOT NULL,
-                    dateArrived DATE NOT NULL,
-                    hourArrived TIME NOT NULL,
-                    dateLeaving DATE,
-                    hourLeaving TIME
-                )
-                """);
+    static void setupDatabase() throws Exception {
+        // Base temporaire sur disque : chaque connexion du pool doit voir les mêmes données
+        databaseFile = Files.createTempFile("vehicleDaoTest", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + databaseFile, null, null,
+                new ConnectionPool.Config(2, 1_000, 60_000, 1, 8));
+        try (Connection connection = pool.borrow()) {
+            SchemaInitializer.migrate(connection);
         }
     }
 
     @BeforeEach
     void setup() {
-        instance = new VehicleDao(connection);
+        instance = new VehicleDao(pool);
     }
 
     @AfterEach
     void cleanDatabase() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = pool.borrow();
+             Statement stmt = connection.createStatement()) {
             stmt.execute("DELETE FROM Vehicle");
+            stmt.execute("DELETE FROM VehicleArchive");
         }
     }
 
     @AfterAll
-    static void closeDatabase() throws SQLException {
-        connection.close();
+    static void closeDatabase() throws Exception {
+        pool.close();
+        Files.deleteIfExists(databaseFile);
     }
 
     @Test
     void findById_shouldReturnVehicle_whenExists() throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "INSERT INTO Vehicle (plateNumber, dateArrived, hourArrived) VALUES (?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, "1-ABC-123");
-            stmt.setDate(2, new java.sql.Date(testVehicle.dateArrived().getTime()));
-            stmt.setTime(3, new java.sql.Time(testVehicle.hourArrived().getTime()));
-            stmt.executeUpdate();
-        }
         int vehicleId = insertTestVehicle();
 
         Optional<VehicleDto> result = instance.findById(vehicleId);
 
         assertTrue(result.isPresent());
         assertEquals("1-ABC-123", result.get().plateNumber());
+        assertEquals(testEntry, result.get().entryTime());
     }
 
     @Test
     void save_shouldInsertNewVehicle() {
-        int newId = instance.save(testVehicle);
+        VehicleDto saved = instance.save(new VehicleDto(0, "1-ABC-123", testEntry, null));
 
-        assertTrue(newId > 0);
-        Optional<VehicleDto> savedVehicle = instance.findById(newId);
+        assertTrue(saved.id() > 0);
+        assertNull(saved.exitTime());
+        Optional<VehicleDto> savedVehicle = instance.findById(saved.id());
         assertTrue(savedVehicle.isPresent());
     }
 
@@ -99,19 +89,28 @@ class VehicleDaoTest {
         VehicleDto updated = new VehicleDto(
                 id,
                 "1-XYZ-987",
-                testVehicle.dateArrived(),
-                testVehicle.hourArrived(),
-                testVehicle.dateLeaving(),
-                testVehicle.hourLeaving()
+                testVehicle.entryTime(),
+                testVehicle.exitTime()
         );
 
-        int result = instance.save(updated);
+        VehicleDto result = instance.save(updated);
 
-        assertEquals(id, result);
+        assertEquals(updated, result);
         Optional<VehicleDto> fromDb = instance.findById(id);
         assertEquals("1-XYZ-987", fromDb.get().plateNumber());
     }
 
+    @Test
+    void save_shouldReuseCachedStatement() {
+        instance.save(testVehicle);
+        long hitsBefore = pool.stats().statementHits();
+
+        instance.save(new VehicleDto(testVehicle.id(), "1-DEF-456", testEntry, testExit));
+
+        assertTrue(pool.stats().statementHits() > hitsBefore);
+        assertEquals("1-DEF-456", instance.findById(testVehicle.id()).get().plateNumber());
+    }
+
     @Test
     void delete_shouldRemoveVehicle() throws SQLException {
         int id = insertTestVehicle();
@@ -122,13 +121,130 @@ class VehicleDaoTest {
         assertFalse(deleted.isPresent());
     }
 
+    @Test
+    void applyBatch_shouldApplyMutationsInOrder() {
+        instance.applyBatch(List.of(
+                new VehicleMutation.Upsert(new VehicleDto(10, "1-AAA-111", testEntry, testExit)),
+                new VehicleMutation.Upsert(new VehicleDto(11, "1-BBB-222", testEntry, null)),
+                new VehicleMutation.Delete(10)
+        ));
+
+        assertFalse(instance.findById(10).isPresent());
+        assertEquals("1-BBB-222", instance.findById(11).get().plateNumber());
+        assertTrue(instance.lastGeneratedId() >= 11);
+    }
+
+    @Test
+    void findPage_shouldWalkFilteredRowsByKeyset() {
+        for (int i = 0; i < 5; i++) {
+            instance.save(new VehicleDto(0, "1-ABC-" + i, testEntry.plusHours(i), null));
+        }
+        instance.save(new VehicleDto(0, "2-ZZZ-999", testEntry, null));
+        VehiclePageRequest request = new VehiclePageRequest("1-abc", testEntry.plusHours(1), null,
+                VehiclePageRequest.SortKey.ENTRY_TIME, true, 3, null);
+
+        VehiclePage first = instance.findPage(request);
+        VehiclePage second = instance.findPage(first.nextRequest(request));
+
+        assertEquals(List.of("1-ABC-4", "1-ABC-3", "1-ABC-2"),
+                first.rows().stream().map(VehicleDto::plateNumber).toList());
+        assertTrue(first.hasMore());
+        assertEquals(List.of("1-ABC-1"), second.rows().stream().map(VehicleDto::plateNumber).toList());
+        assertFalse(second.hasMore());
+    }
+
+    @Test
+    void streamAll_shouldReadEveryRowAndReleaseConnection() {
+        for (int i = 0; i < 25; i++) {
+            instance.save(new VehicleDto(0, "1-STR-" + i, testEntry, null));
+        }
+
+        long count;
+        try (Stream<VehicleDto> vehicles = instance.streamAll(10)) {
+            assertEquals(1, pool.stats().inUse());
+            count = vehicles.filter(v -> v.plateNumber().startsWith("1-STR-")).count();
+        }
+
+        assertEquals(25, count);
+        assertEquals(0, pool.stats().inUse());
+    }
+
+    @Test
+    void findByIdRange_shouldKeepOverstayingVehicles() {
+        // sortie prévue dépassée : le véhicule est toujours présent
+        VehicleDto overstaying = instance.save(new VehicleDto(0, "1-OLD-001", testEntry, testExit));
+        VehicleDto open = instance.save(new VehicleDto(0, "1-NEW-002", testEntry, null));
+        long[] bounds = instance.idBounds();
+
+        assertEquals(List.of(overstaying, open), instance.findByIdRange((int) bounds[0], (int) bounds[1] + 1));
+        assertEquals(List.of(open), instance.findByIdRange(open.id(), open.id() + 1));
+    }
+
+    @Test
+    void archive_shouldMoveVehicleToHistory() {
+        VehicleDto saved = instance.save(new VehicleDto(0, "1-ABC-123", testEntry, null));
+
+        instance.archive(saved.id(), testExit);
+
+        assertTrue(instance.findById(saved.id()).isEmpty());
+        VehiclePage page = instance.findPage(new VehiclePageRequest(
+                "1-ABC", null, null, VehiclePageRequest.SortKey.ID, false, 10, null));
+        assertEquals(List.of(new VehicleDto(saved.id(), "1-ABC-123", testEntry, testExit)), page.rows());
+        try (Stream<VehicleDto> history = instance.streamHistory(10)) {
+            assertEquals(1, history.count());
+        }
+    }
+
+    @Test
+    void loadStays_shouldReadArchivedAndActiveStaysInColumns() {
+        VehicleDto archived = instance.save(new VehicleDto(0, "1-ABC-123", testEntry, null));
+        instance.archive(archived.id(), testExit);
+        instance.save(new VehicleDto(0, "2-XYZ-987", testEntry.plusHours(1), null));
+        instance.save(new VehicleDto(0, "3-OLD-000", testEntry.minusDays(1), null));
+        LocalDateTime now = testEntry.plusHours(3);
+
+        Stays stays = instance.loadStays(testEntry, testEntry.plusDays(1), now, 16);
+
+        assertEquals(2, stays.size());
+        assertEquals(Stays.epochMinute(testEntry), stays.entry()[0]);
+        assertEquals(Stays.epochMinute(testExit), stays.exit()[0]);
+        assertEquals(Stays.epochMinute(now), stays.exit()[1]);
+    }
+
+    @Test
+    void migrate_shouldBeIdempotent() throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            SchemaInitializer.migrate(connection);
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+                assertTrue(rs.next());
+                assertEquals(SchemaInitializer.SCHEMA_VERSION, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void borrow_shouldReuseReleasedConnection() throws SQLException {
+        long createdBefore = pool.stats().created();
+        try (Connection first = pool.borrow()) {
+            assertFalse(first.isClosed());
+        }
+        try (Connection second = pool.borrow()) {
+            assertFalse(second.isClosed());
+        }
+
+        assertTrue(pool.stats().created() - createdBefore <= 1);
+        assertEquals(0, pool.stats().inUse());
+    }
+
     private int insertTestVehicle() throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "INSERT INTO Vehicle (plateNumber, dateArrived, hourArrived) VALUES (?, ?, ?)",
+        try (Connection connection = pool.borrow();
+             PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO Vehicle (plateNumber, entryTime, exitTime) VALUES (?, ?, ?)",
                 Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, "1-ABC-123");
-            stmt.setDate(2, new java.sql.Date(testVehicle.dateArrived().getTime()));
-            stmt.setTime(3, new java.sql.Time(testVehicle.hourArrived().getTime()));
+            stmt.setLong(2, VehicleDao.toEpoch(testEntry));
+            stmt.setLong(3, VehicleDao.toEpoch(testExit));
             stmt.executeUpdate();
 
             ResultSet rs = stmt.getGeneratedKeys();
@@ -136,15 +252,4 @@ class VehicleDaoTest {
             return rs.getInt(1);
         }
     }
-
-    private void insertTestVehicles() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("""
-                INSERT INTO Vehicle (plateNumber, dateArrived, hourArrived) VALUES
-                ('1-ABC-123', '2023-05-15', '08:30:00'),
-                ('1-DEF-456', '2023-05-16', '09:15:00'),
-                ('1-GHI-789', '2023-05-17', '10:00:00')
-                """);
-        }
-    }
-}
\ No newline at end of file
+}
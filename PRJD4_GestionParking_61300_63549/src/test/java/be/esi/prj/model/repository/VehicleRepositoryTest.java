@@ -0,0 +1,84 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.ExecutionService;
+import be.esi.prj.model.dto.VehicleDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleRepositoryTest {
+
+    private Path databaseFile;
+    private ConnectionPool pool;
+    private VehicleRepository repository;
+
+    @BeforeEach
+    void setup() throws Exception {
+        databaseFile = Files.createTempFile("vehicleRepositoryTest", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + databaseFile, null, null,
+                new ConnectionPool.Config(2, 1_000, 60_000, 1, 8));
+        try (Connection connection = pool.borrow()) {
+            SchemaInitializer.migrate(connection);
+        }
+        repository = new VehicleRepository(new VehicleDao(pool));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ExecutionService.shutdown();
+        pool.close();
+        Files.deleteIfExists(databaseFile);
+    }
+
+    @Test
+    void registerPassages_shouldOnlyEndStaysFromTheExitLane() {
+        LocalDateTime seen = LocalDateTime.of(2025, 3, 3, 8, 0);
+
+        repository.registerPassages(List.of(new VehiclePassage("1-ABC-123", seen, VehiclePassage.Lane.ENTRY)));
+        List<VehicleChangeEvent> parked = repository.registerPassages(List.of(
+                new VehiclePassage("1-ABC-123", seen.plusHours(1), VehiclePassage.Lane.ENTRY),
+                new VehiclePassage("2-XYZ-045", seen.plusHours(1), VehiclePassage.Lane.EXIT)));
+
+        assertTrue(parked.isEmpty());
+        assertTrue(repository.existsByPlate("1-ABC-123"));
+        assertFalse(repository.existsByPlate("2-XYZ-045"));
+
+        List<VehicleChangeEvent> left = repository.registerPassages(List.of(
+                new VehiclePassage("1-ABC-123", seen.plusHours(2), VehiclePassage.Lane.EXIT)));
+
+        assertEquals(VehicleChangeEvent.Type.REMOVED, left.getFirst().type());
+        assertFalse(repository.existsByPlate("1-ABC-123"));
+    }
+
+    @Test
+    void findTicketByPlate_shouldOnlyResolveConfusions_andOfferCloseReadings() {
+        LocalDateTime entry = LocalDateTime.of(2025, 3, 3, 8, 0);
+        repository.registerEntry("1-ABC-123", entry, null);
+
+        assertEquals("1-ABC-123", repository.findTicketByPlate("1-A8C-l23").orElseThrow().plateNumber());
+        assertTrue(repository.findTicketByPlate("1-ABC-124").isEmpty());
+        assertEquals(List.of("1-ABC-123"), repository.findTicketCandidates("1-ABC-124").stream()
+                .map(PlateMatch::plateNumber)
+                .toList());
+    }
+
+    @Test
+    void save_shouldNotRecreateACheckedOutVehicle() {
+        LocalDateTime entry = LocalDateTime.of(2025, 3, 3, 8, 0);
+        int id = repository.registerEntry("1-ABC-123", entry, null);
+        repository.checkout(id, entry.plusHours(2));
+
+        assertThrows(RepositoryException.class,
+                () -> repository.save(new VehicleDto(id, "1-ABC-123", entry, entry.plusHours(2))));
+        assertTrue(repository.findById(id).isEmpty());
+        assertFalse(repository.existsByPlate("1-ABC-123"));
+    }
+}
@@ -0,0 +1,109 @@
+package be.esi.prj.model.repository;
+
+import be.esi.prj.model.ExecutionService;
+import be.esi.prj.model.dto.VehicleDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+
+    private Path databaseFile;
+    private ConnectionPool pool;
+    private FlakyDao dao;
+
+    /** DAO dont les écritures groupées échouent tant que {@code failing} est vrai, ou si elles touchent {@code poisonId}. */
+    private static final class FlakyDao extends VehicleDao {
+        volatile boolean failing;
+        volatile int poisonId = -1;
+
+        FlakyDao(ConnectionPool pool) {
+            super(pool);
+        }
+
+        @Override
+        public List<VehicleDto> applyBatch(List<VehicleMutation> mutations) {
+            if (failing) {
+                throw new RepositoryException("Base indisponible");
+            }
+            for (VehicleMutation mutation : mutations) {
+                if (mutation instanceof VehicleMutation.Upsert(VehicleDto vehicle) && vehicle.id() == poisonId) {
+                    throw new RepositoryException("Contrainte violée");
+                }
+            }
+            return super.applyBatch(mutations);
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        databaseFile = Files.createTempFile("writeBehindQueueTest", ".db");
+        pool = new ConnectionPool("jdbc:sqlite:" + databaseFile, null, null,
+                new ConnectionPool.Config(2, 1_000, 60_000, 1, 8));
+        try (Connection connection = pool.borrow()) {
+            SchemaInitializer.migrate(connection);
+        }
+        dao = new FlakyDao(pool);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ExecutionService.shutdown();
+        pool.close();
+        Files.deleteIfExists(databaseFile);
+    }
+
+    @Test
+    void flush_shouldThrowAndKeepWrites_untilTheyAreApplied() {
+        WriteBehindQueue queue = new WriteBehindQueue(dao, 16, 8, 0);
+        LocalDateTime entry = LocalDateTime.of(2025, 3, 3, 8, 0);
+        dao.failing = true;
+        queue.submit(new VehicleMutation.Upsert(new VehicleDto(7, "1-ABC-123", entry, entry.plusHours(2))));
+
+        assertThrows(RepositoryException.class, queue::flush);
+        assertEquals(1, queue.stats().unwritten());
+        assertTrue(dao.findById(7).isEmpty());
+
+        dao.failing = false;
+        queue.submit(new VehicleMutation.Archive(7, entry.plusHours(1)));
+        queue.flush();
+
+        assertEquals(0, queue.stats().unwritten());
+        assertTrue(dao.findById(7).isEmpty());
+        try (Stream<VehicleDto> history = dao.streamHistory(16)) {
+            assertEquals(1, history.count());
+        }
+        queue.close();
+    }
+
+    @Test
+    void flush_shouldSetAsideAnInvalidWrite_andApplyTheOthers() {
+        WriteBehindQueue queue = new WriteBehindQueue(dao, 16, 8, 0);
+        LocalDateTime entry = LocalDateTime.of(2025, 3, 3, 8, 0);
+        dao.poisonId = 7;
+        VehicleMutation poison = new VehicleMutation.Upsert(new VehicleDto(7, "1-ABC-123", entry, null));
+        queue.submit(poison);
+        queue.submit(new VehicleMutation.Upsert(new VehicleDto(8, "1-ABC-124", entry, null)));
+
+        assertThrows(RepositoryException.class, queue::flush);
+        assertTrue(dao.findById(8).isPresent());
+        assertEquals(0, queue.stats().unwritten());
+        assertEquals(1, queue.stats().deadLettered());
+        assertEquals(List.of(poison), queue.deadLetters());
+
+        queue.submit(new VehicleMutation.Upsert(new VehicleDto(9, "1-ABC-125", entry, null)));
+        queue.flush();
+
+        assertTrue(dao.findById(9).isPresent());
+        queue.close();
+    }
+}